@@ -1,6 +1,9 @@
 package gr.aueb.cf.eduapp.api;
 
 import gr.aueb.cf.eduapp.authentication.AuthenticationService;
+import gr.aueb.cf.eduapp.core.ClientIpResolver;
+import gr.aueb.cf.eduapp.core.exceptions.AppObjectInvalidArgumentException;
+import gr.aueb.cf.eduapp.core.exceptions.AppTooManyRequestsException;
 import gr.aueb.cf.eduapp.dto.AuthenticationRequestDTO;
 import gr.aueb.cf.eduapp.dto.AuthenticationResponseDTO;
 import gr.aueb.cf.eduapp.dto.ResponseMessageDTO;
@@ -8,11 +11,15 @@ import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
@@ -22,6 +29,7 @@ import org.springframework.web.bind.annotation.RestController;
 public class AuthRestController {
 
     private final AuthenticationService authenticationService;
+    private final ClientIpResolver clientIpResolver;
 
     @Operation(
             summary = "Authenticate user",
@@ -36,12 +44,43 @@ public class AuthRestController {
                             content = @Content),
                     @ApiResponse(
                             responseCode = "400",  description = "Bad request - Missing/invalid parameters",
-                            content = @Content)
+                            content = @Content),
+                    @ApiResponse(
+                            responseCode = "429", description = "Too many login attempts",
+                            content = @Content(mediaType = "application/json", schema = @Schema(implementation = ResponseMessageDTO.class)))
             }
     )
     @PostMapping("/authenticate")
-    public ResponseEntity<AuthenticationResponseDTO> authenticate(@RequestBody AuthenticationRequestDTO authenticationRequestDTO) {
-        AuthenticationResponseDTO authenticationResponseDTO = authenticationService.authenticate(authenticationRequestDTO);
+    public ResponseEntity<AuthenticationResponseDTO> authenticate(@RequestBody AuthenticationRequestDTO authenticationRequestDTO,
+                                                                  HttpServletRequest request)
+            throws AppTooManyRequestsException {
+        AuthenticationResponseDTO authenticationResponseDTO =
+                authenticationService.authenticate(authenticationRequestDTO, clientIpResolver.resolve(request));
         return new ResponseEntity<>(authenticationResponseDTO, HttpStatus.OK);
     }
+
+    @Operation(
+            summary = "Logout",
+            description = "Revokes the bearer token of the request",
+            security = @SecurityRequirement(name = "Bearer Authentication"),
+            responses = {
+                    @ApiResponse(responseCode = "204", description = "Token revoked", content = @Content),
+                    @ApiResponse(
+                            responseCode = "400", description = "No bearer token in the Authorization header",
+                            content = @Content(mediaType = "application/json", schema = @Schema(implementation = ResponseMessageDTO.class))),
+                    @ApiResponse(
+                            responseCode = "401", description = "Unauthorized",
+                            content = @Content(mediaType = "application/json", schema = @Schema(implementation = ResponseMessageDTO.class)))
+            }
+    )
+    @PostMapping("/logout")
+    public ResponseEntity<Void> logout(@RequestHeader(value = HttpHeaders.AUTHORIZATION, required = false) String authorization)
+            throws AppObjectInvalidArgumentException {
+        // Same check as the JWT filter, the request may have been authenticated some other way
+        if (authorization == null || !authorization.startsWith("Bearer ")) {
+            throw new AppObjectInvalidArgumentException("Authorization", "Logout needs a bearer token");
+        }
+        authenticationService.logout(authorization.substring(7).trim());
+        return ResponseEntity.noContent().build();
+    }
 }
@@ -1,33 +1,60 @@
 package gr.aueb.cf.eduapp.api;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import gr.aueb.cf.eduapp.core.ETags;
+import gr.aueb.cf.eduapp.core.enums.CountMode;
+import gr.aueb.cf.eduapp.core.enums.Role;
 import gr.aueb.cf.eduapp.core.exceptions.*;
 import gr.aueb.cf.eduapp.core.filters.Paginated;
 import gr.aueb.cf.eduapp.core.filters.TeacherFilters;
+import gr.aueb.cf.eduapp.dto.PasswordChangeDTO;
 import gr.aueb.cf.eduapp.dto.ResponseMessageDTO;
+import gr.aueb.cf.eduapp.dto.TeacherImportResultDTO;
 import gr.aueb.cf.eduapp.dto.TeacherInsertDTO;
+import gr.aueb.cf.eduapp.dto.TeacherPatchDTO;
 import gr.aueb.cf.eduapp.dto.TeacherReadOnlyDTO;
 import gr.aueb.cf.eduapp.dto.TeacherUpdateDTO;
 import gr.aueb.cf.eduapp.service.ITeacherService;
+import gr.aueb.cf.eduapp.service.TeacherImportReader;
+import gr.aueb.cf.eduapp.service.TeacherImportService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.Value;
 import org.springframework.data.domain.Page;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.InvalidMediaTypeException;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.lang.Nullable;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.Authentication;
+import org.springframework.util.InvalidMimeTypeException;
+import org.springframework.util.MimeTypeUtils;
 import org.springframework.validation.BindingResult;
+import org.springframework.web.HttpMediaTypeNotAcceptableException;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
 import java.net.URI;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.security.Principal;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
 
 @RestController
@@ -35,7 +62,17 @@ import java.util.Objects;
 @RequiredArgsConstructor
 public class TeacherRestController {
 
+    private static final String TEXT_CSV = "text/csv";
+    private static final String APPLICATION_NDJSON = "application/x-ndjson";
+    private static final MediaType EXPORT_NDJSON = MediaType.parseMediaType(APPLICATION_NDJSON);
+    private static final MediaType EXPORT_CSV = MediaType.parseMediaType(TEXT_CSV);
+    private static final List<MediaType> EXPORT_MEDIA_TYPES = List.of(EXPORT_NDJSON, EXPORT_CSV);  // in order of preference
+    private static final List<String> EXPORT_CSV_COLUMNS = List.of("id", "uuid", "isActive", "firstname", "lastname",
+            "vat", "amka", "identityNumber");
+
     private final ITeacherService teacherService;
+    private final TeacherImportService teacherImportService;
+    private final ObjectMapper objectMapper;
 
     @Operation(
             summary = "Save a teacher",
@@ -53,7 +90,7 @@ public class TeacherRestController {
                             content = @Content(mediaType = "application/json", schema = @Schema(implementation = ResponseMessageDTO.class))
                     ),
                     @ApiResponse(
-                            responseCode = "400", description = "Validation error",
+                            responseCode = "400", description = "Validation error, or a role that cannot be registered (SUPER_ADMIN)",
                             content = @Content(mediaType = "application/json", schema = @Schema(implementation = ResponseMessageDTO.class))
                     )
 //                    ,
@@ -73,7 +110,7 @@ public class TeacherRestController {
             @Valid @RequestPart(name = "teacher") TeacherInsertDTO teacherInsertDTO,
             @Nullable @RequestPart(value = "amkaFile", required = false) MultipartFile amkaFile,
             BindingResult bindingResult)
-            throws AppObjectAlreadyExists, IOException, ValidationException {
+            throws AppObjectAlreadyExists, IOException, ValidationException, AppObjectInvalidArgumentException {
 
         if (bindingResult.hasErrors()) {
             throw new ValidationException(bindingResult);
@@ -92,8 +129,67 @@ public class TeacherRestController {
                 .body(teacherReadOnlyDTO);
     }
 
+    @Operation(
+            summary = "Import teachers in bulk",
+            description = "The body is streamed, as CSV (text/csv) with a header row naming the columns " +
+                    "isActive, firstname, lastname, username, password, vat, fatherName, fatherLastname, motherName, " +
+                    "motherLastname, dateOfBirth, gender, role, amka, identityNumber, placeOfBirth, municipalityOfRegistration, " +
+                    "or as NDJSON (application/x-ndjson) with one teacher per line, shaped like the teacher part of POST /api/teachers. " +
+                    "The response streams one result per row as NDJSON, written as each chunk of rows is committed.",
+            security = @SecurityRequirement(name = "Bearer Authentication"),
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200", description = "One result per row, CREATED with the uuid or FAILED with the code and message",
+                            content = @Content(mediaType = "application/x-ndjson", schema = @Schema(implementation = TeacherImportResultDTO.class))
+                    ),
+                    @ApiResponse(
+                            responseCode = "400", description = "The CSV header is missing or incomplete",
+                            content = @Content(mediaType = "application/json", schema = @Schema(implementation = ResponseMessageDTO.class))
+                    ),
+                    @ApiResponse(
+                            responseCode = "401", description = "Not Authenticated",
+                            content = @Content(mediaType = "application/json", schema = @Schema(implementation = ResponseMessageDTO.class))
+                    ),
+                    @ApiResponse(
+                            responseCode = "403", description = "Access Denied",
+                            content = @Content(mediaType = "application/json", schema = @Schema(implementation = ResponseMessageDTO.class))
+                    )
+            }
+    )
+    @PostMapping(value = "/teachers/import", consumes = {TEXT_CSV, APPLICATION_NDJSON}, produces = APPLICATION_NDJSON)
+    @PreAuthorize("hasAuthority('SUPER_ADMIN')")   // authorities have no ROLE_ prefix
+    public void importTeachers(HttpServletRequest request, HttpServletResponse response)
+            throws IOException, AppObjectInvalidArgumentException {
+
+        // Read and answered as a stream: neither the file nor the results are ever held in memory as a whole
+        MediaType contentType = MediaType.parseMediaType(request.getContentType());
+        Charset charset = Objects.requireNonNullElse(contentType.getCharset(), StandardCharsets.UTF_8);
+        Reader reader = new InputStreamReader(request.getInputStream(), charset);
+        TeacherImportReader rows = contentType.isCompatibleWith(MediaType.parseMediaType(TEXT_CSV))
+                ? TeacherImportReader.csv(reader)
+                : TeacherImportReader.ndjson(reader, objectMapper);
+
+        response.setContentType(APPLICATION_NDJSON);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        OutputStream out = response.getOutputStream();
+        teacherImportService.importTeachers(rows, results -> {
+            try {
+                for (TeacherImportResultDTO result : results) {
+                    out.write(objectMapper.writeValueAsBytes(result));
+                    out.write('\n');
+                }
+                response.flushBuffer();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
     @Operation(
             summary = "Get all teachers paginated",
+            description = "Pass cursor= (empty) for keyset pagination, then the nextCursor of each response. " +
+                    "Keyset pages have no page numbers or totals but cost the same at any depth. " +
+                    "count=NONE skips the totals, count=ESTIMATED returns cached totals (stale for up to a minute).",
             security = @SecurityRequirement(name = "Bearer Authentication"),
             responses = {
                     @ApiResponse(
@@ -109,7 +205,8 @@ public class TeacherRestController {
                                                   "pageSize": 10,
                                                   "totalPages": 5,
                                                   "numberOfElements": 8,
-                                                  "totalElements": 48
+                                                  "totalElements": 48,
+                                                  "hasNext": false
                                                 }"""
                             ))
                     ),
@@ -123,15 +220,21 @@ public class TeacherRestController {
     )
     @GetMapping("/teachers")
     public ResponseEntity<Paginated<TeacherReadOnlyDTO>> getPaginatedTeachers(
-            @RequestParam(defaultValue = "0") int page, @RequestParam(defaultValue = "5") int size
-    ) {
+            @RequestParam(defaultValue = "0") int page, @RequestParam(defaultValue = "5") int size,
+            @Nullable @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "EXACT") CountMode count
+    ) throws AppObjectInvalidArgumentException {
 //        Page<TeacherReadOnlyDTO> teachersPage = teacherService.getPaginatedTeachers(page, size);
-        Paginated<TeacherReadOnlyDTO> teachersPage = teacherService.getPaginatedTeachers(page, size);
-        return ResponseEntity.ok(teachersPage);
+        Paginated<TeacherReadOnlyDTO> teachersPage = teacherService.getPaginatedTeachers(page, size, cursor, count);
+        // Unchanged pages are answered with 304 (If-None-Match / If-Modified-Since)
+        return ETags.ok(teachersPage, ETags.of(teachersPage), ETags.lastModified(teachersPage.getData()));
     }
 
     @Operation(
             summary = "Get all teachers paginated and filtered",
+            description = "Set \"cursor\": \"\" for keyset pagination on sortBy and id, then the nextCursor of each response. " +
+                    "countMode EXACT (default), NONE or ESTIMATED chooses how totals are computed. " +
+                    "query searches part of the uuid, names, VAT or AMKA.",
             security = @SecurityRequirement(name = "Bearer Authentication"),
             responses = {
                     @ApiResponse(
@@ -147,7 +250,8 @@ public class TeacherRestController {
                                                   "pageSize": 10,
                                                   "totalPages": 5,
                                                   "numberOfElements": 8,
-                                                  "totalElements": 48
+                                                  "totalElements": 48,
+                                                  "hasNext": false
                                                 }"""
                             ))
                     ),
@@ -161,11 +265,62 @@ public class TeacherRestController {
     )
     @PostMapping("/teachers/search")
     public ResponseEntity<Paginated<TeacherReadOnlyDTO>> getFilteredAndPaginatedTeachers(
-            @Nullable @RequestBody TeacherFilters filters)  {
+            @Nullable @RequestBody TeacherFilters filters) throws AppObjectInvalidArgumentException {
 
         if (filters == null) filters = TeacherFilters.builder().build();
         Paginated<TeacherReadOnlyDTO> dtoPaginated = teacherService.getTeachersFilteredPaginated(filters);
-        return ResponseEntity.ok(dtoPaginated);
+        return ETags.ok(dtoPaginated, ETags.of(dtoPaginated), ETags.lastModified(dtoPaginated.getData()));
+    }
+
+    @Operation(
+            summary = "Export the teachers matching the filters",
+            description = "Takes the same filters as /teachers/search, paging aside, and streams every matching teacher " +
+                    "from a single query, as NDJSON (Accept: application/x-ndjson, the default without Accept or for */*) " +
+                    "or CSV (Accept: text/csv). CSV cells starting with =, +, -, @, tab or carriage return are prefixed " +
+                    "with ' so that spreadsheets do not evaluate them as formulas.",
+            security = @SecurityRequirement(name = "Bearer Authentication"),
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200", description = "Teachers exported, one per line",
+                            content = {
+                                    @Content(mediaType = "application/x-ndjson", schema = @Schema(implementation = TeacherReadOnlyDTO.class)),
+                                    @Content(mediaType = "text/csv")
+                            }
+                    ),
+                    @ApiResponse(
+                            responseCode = "406", description = "Accept takes neither NDJSON nor CSV",
+                            content = @Content),
+                    @ApiResponse(
+                            responseCode = "400", description = "Cannot sort on the given sortBy",
+                            content = @Content(mediaType = "application/json", schema = @Schema(implementation = ResponseMessageDTO.class))),
+                    @ApiResponse(
+                            responseCode = "401", description = "Unauthorized",
+                            content = @Content(mediaType = "application/json", schema = @Schema(implementation = ResponseMessageDTO.class))),
+                    @ApiResponse(
+                            responseCode = "403", description = "Access Denied",
+                            content = @Content(mediaType = "application/json", schema = @Schema(implementation = ResponseMessageDTO.class)))
+            }
+    )
+    @PostMapping("/teachers/export")
+    public void exportTeachers(@Nullable @RequestBody(required = false) TeacherFilters filters,
+                               @Nullable @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+                               HttpServletResponse response)
+            throws IOException, AppObjectInvalidArgumentException, HttpMediaTypeNotAcceptableException {
+
+        // One handler negotiating itself: two mappings differing only in produces are ambiguous for */*
+        MediaType mediaType = exportMediaType(accept);
+        response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+        Writer writer = exportWriter(response, mediaType.toString());
+        if (mediaType.equals(EXPORT_CSV)) {
+            writeLine(writer, String.join(",", EXPORT_CSV_COLUMNS));
+            teacherService.exportTeachers(filtersOrNone(filters), teacher -> writeLine(writer, csvRow(
+                    teacher.id(), teacher.uuid(), teacher.isActive(),
+                    teacher.userReadOnlyDTO().firstname(), teacher.userReadOnlyDTO().lastname(), teacher.userReadOnlyDTO().vat(),
+                    teacher.personalInfoReadOnlyDTO().amka(), teacher.personalInfoReadOnlyDTO().identityNumber())));
+        } else {
+            teacherService.exportTeachers(filtersOrNone(filters), teacher -> writeLine(writer, toJson(teacher)));
+        }
+        writer.flush();
     }
 
     @Operation(
@@ -176,6 +331,10 @@ public class TeacherRestController {
                             responseCode = "200", description = "Teacher returned",
                             content = @Content(mediaType = "application/json", schema = @Schema(implementation = TeacherReadOnlyDTO.class))
                     ),
+                    @ApiResponse(
+                            responseCode = "304", description = "Teacher not modified since the given ETag / date",
+                            content = @Content
+                    ),
                     @ApiResponse(
                             responseCode = "404", description = "Teacher not found",
                             content = @Content(mediaType = "application/json", schema = @Schema(implementation = ResponseMessageDTO.class))
@@ -193,7 +352,9 @@ public class TeacherRestController {
     @GetMapping("/teachers/{uuid}")
     public ResponseEntity<TeacherReadOnlyDTO> getTeacherByUuid(@PathVariable String uuid)
             throws AppObjectNotFoundException {
-        return ResponseEntity.ok(teacherService.getOneTeacher(uuid));
+        TeacherReadOnlyDTO teacherReadOnlyDTO = teacherService.getOneTeacher(uuid);
+        // Answered with 304 when If-None-Match / If-Modified-Since still match
+        return ETags.ok(teacherReadOnlyDTO, ETags.of(teacherReadOnlyDTO), ETags.lastModified(teacherReadOnlyDTO));
     }
 
 
@@ -212,6 +373,10 @@ public class TeacherRestController {
                     @ApiResponse(responseCode = "404", description = "Teacher not found",
                             content = @Content(mediaType = "application/json", schema = @Schema(implementation = ResponseMessageDTO.class))
                     ),
+                    @ApiResponse(
+                            responseCode = "412", description = "If-Match does not match the current ETag, or a concurrent update won",
+                            content = @Content(mediaType = "application/json", schema = @Schema(implementation = ResponseMessageDTO.class))
+                    ),
                     @ApiResponse(
                             responseCode = "500", description = "Internal Server Error",
                             content = @Content(mediaType = "application/json", schema = @Schema(implementation = ResponseMessageDTO.class))
@@ -235,18 +400,183 @@ public class TeacherRestController {
     public ResponseEntity<TeacherReadOnlyDTO> updateTeacher(@PathVariable String uuid,
                                                             @Valid @RequestPart(name = "teacher") TeacherUpdateDTO teacherUpdateDTO,
                                                             @Nullable @RequestPart(value = "amkaFile", required = false) MultipartFile amkaFile,
-                                                            BindingResult bindingResult)
-            throws AppObjectNotFoundException, AppObjectAlreadyExists, IOException, ValidationException {
+                                                            BindingResult bindingResult,
+                                                            @Nullable @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch)
+            throws AppObjectNotFoundException, AppObjectAlreadyExists, IOException, ValidationException, AppObjectPreconditionFailedException,
+            AppObjectInvalidArgumentException {
 
         if (bindingResult.hasErrors()) {
             throw new ValidationException(bindingResult);
         }
 
-        TeacherReadOnlyDTO teacherReadOnlyDTO = teacherService.updateTeacher(teacherUpdateDTO, amkaFile);
+        TeacherReadOnlyDTO teacherReadOnlyDTO = teacherService.updateTeacher(teacherUpdateDTO, amkaFile,
+                ETags.requiredVersion(ifMatch));
 
-        return ResponseEntity.ok(teacherReadOnlyDTO);
+        return ResponseEntity.ok()
+                .eTag(ETags.of(teacherReadOnlyDTO))
+                .body(teacherReadOnlyDTO);
     }
-}
 
+    @Operation(
+            summary = "Partially update a teacher",
+            description = "Only the fields present in the body are changed, and only the changed columns are written. " +
+                    "Only the teacher themselves or a super admin can patch a teacher.",
+            security = @SecurityRequirement(name = "Bearer Authentication"),
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200", description = "Teacher updated",
+                            content = @Content(mediaType = "application/json", schema = @Schema(implementation = TeacherReadOnlyDTO.class))
+                    ),
+                    @ApiResponse(
+                            responseCode = "409", description = "VAT, AMKA or identity number already exists",
+                            content = @Content(mediaType = "application/json", schema = @Schema(implementation = ResponseMessageDTO.class))
+                    ),
+                    @ApiResponse(responseCode = "404", description = "Teacher not found",
+                            content = @Content(mediaType = "application/json", schema = @Schema(implementation = ResponseMessageDTO.class))
+                    ),
+                    @ApiResponse(
+                            responseCode = "412", description = "If-Match does not match the current ETag, or a concurrent update won",
+                            content = @Content(mediaType = "application/json", schema = @Schema(implementation = ResponseMessageDTO.class))
+                    ),
+                    @ApiResponse(
+                            responseCode = "400", description = "Validation error",
+                            content = @Content(mediaType = "application/json", schema = @Schema(implementation = ResponseMessageDTO.class))
+                    ),
+                    @ApiResponse(
+                            responseCode = "401", description = "Not Authenticated",
+                            content = @Content(mediaType = "application/json", schema = @Schema(implementation = ResponseMessageDTO.class))
+                    ),
+                    @ApiResponse(
+                            responseCode = "403", description = "Access Denied",
+                            content = @Content(mediaType = "application/json", schema = @Schema(implementation = ResponseMessageDTO.class))
+                    )
+            }
+    )
+    @PatchMapping("/teachers/{uuid}")
+    public ResponseEntity<TeacherReadOnlyDTO> patchTeacher(@PathVariable String uuid,
+                                                           @Valid @RequestBody TeacherPatchDTO teacherPatchDTO,
+                                                           BindingResult bindingResult,
+                                                           @Nullable @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+                                                           Authentication authentication)
+            throws AppObjectNotFoundException, AppObjectAlreadyExists, ValidationException, AppObjectPreconditionFailedException,
+            AppObjectNotAuthorizedException {
+
+        if (bindingResult.hasErrors()) {
+            throw new ValidationException(bindingResult);
+        }
+
+        boolean superAdmin = authentication.getAuthorities().stream()
+                .anyMatch(authority -> Role.SUPER_ADMIN.name().equals(authority.getAuthority()));
+        TeacherReadOnlyDTO teacherReadOnlyDTO = teacherService.patchTeacher(uuid, teacherPatchDTO,
+                ETags.requiredVersion(ifMatch), authentication.getName(), superAdmin);
+
+        return ResponseEntity.ok()
+                .eTag(ETags.of(teacherReadOnlyDTO))
+                .body(teacherReadOnlyDTO);
+    }
+
+    @Operation(
+            summary = "Change the password of a teacher",
+            description = "Verifies the old password and stores the new one. Only the teacher themselves can change it.",
+            security = @SecurityRequirement(name = "Bearer Authentication"),
+            responses = {
+                    @ApiResponse(responseCode = "204", description = "Password changed", content = @Content),
+                    @ApiResponse(
+                            responseCode = "400", description = "Validation error or wrong old password",
+                            content = @Content(mediaType = "application/json", schema = @Schema(implementation = ResponseMessageDTO.class))
+                    ),
+                    @ApiResponse(
+                            responseCode = "404", description = "Teacher not found",
+                            content = @Content(mediaType = "application/json", schema = @Schema(implementation = ResponseMessageDTO.class))
+                    ),
+                    @ApiResponse(
+                            responseCode = "401", description = "Not Authenticated",
+                            content = @Content(mediaType = "application/json", schema = @Schema(implementation = ResponseMessageDTO.class))
+                    ),
+                    @ApiResponse(
+                            responseCode = "403", description = "Access Denied",
+                            content = @Content(mediaType = "application/json", schema = @Schema(implementation = ResponseMessageDTO.class))
+                    )
+            }
+    )
+    @PutMapping("/teachers/{uuid}/password")
+    public ResponseEntity<Void> changePassword(@PathVariable String uuid,
+                                               @Valid @RequestBody PasswordChangeDTO passwordChangeDTO,
+                                               BindingResult bindingResult,
+                                               Principal principal)
+            throws AppObjectNotFoundException, AppObjectNotAuthorizedException, AppObjectInvalidArgumentException, ValidationException {
+
+        if (bindingResult.hasErrors()) {
+            throw new ValidationException(bindingResult);
+        }
+
+        teacherService.changePassword(uuid, passwordChangeDTO, principal.getName());
+        return ResponseEntity.noContent().build();
+    }
+
+    private static TeacherFilters filtersOrNone(TeacherFilters filters) {
+        return filters == null ? TeacherFilters.builder().build() : filters;
+    }
+
+    // NDJSON when the Accept header is missing or takes anything, CSV when it prefers text/csv
+    private static MediaType exportMediaType(@Nullable String accept) throws HttpMediaTypeNotAcceptableException {
+        if (accept == null || accept.isBlank()) return EXPORT_NDJSON;
 
+        List<MediaType> accepted;
+        try {
+            accepted = new ArrayList<>(MediaType.parseMediaTypes(accept));
+            MimeTypeUtils.sortBySpecificity(accepted);
+        } catch (InvalidMediaTypeException | InvalidMimeTypeException e) {
+            throw new HttpMediaTypeNotAcceptableException("Invalid Accept header: " + e.getMessage());
+        }
+        for (MediaType mediaType : accepted) {
+            if (mediaType.getQualityValue() == 0) continue;
+            for (MediaType exported : EXPORT_MEDIA_TYPES) {
+                if (mediaType.isCompatibleWith(exported)) return exported;
+            }
+        }
+        throw new HttpMediaTypeNotAcceptableException(EXPORT_MEDIA_TYPES);
+    }
+
+    // Written through the servlet buffer, which is sent whenever it fills up
+    private static Writer exportWriter(HttpServletResponse response, String contentType) throws IOException {
+        response.setContentType(contentType);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        return response.getWriter();
+    }
+
+    private String toJson(TeacherReadOnlyDTO teacher) {
+        try {
+            return objectMapper.writeValueAsString(teacher);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
 
+    private static void writeLine(Writer writer, String line) {
+        try {
+            writer.write(line);
+            writer.write('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // RFC 4180: fields with commas, quotes or line breaks are quoted, quotes doubled. Names are user input,
+    // so cells a spreadsheet would evaluate as a formula (OWASP CSV injection) are prefixed with '
+    static String csvRow(Object... values) {
+        StringBuilder row = new StringBuilder();
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) row.append(',');
+            String value = values[i] == null ? "" : values[i].toString();
+            if (!value.isEmpty() && "=+-@\t\r".indexOf(value.charAt(0)) >= 0) {
+                value = "'" + value;
+            }
+            if (value.contains(",") || value.contains("\"") || value.contains("\n") || value.contains("\r")) {
+                value = "\"" + value.replace("\"", "\"\"") + "\"";
+            }
+            row.append(value);
+        }
+        return row.toString();
+    }
+}
@@ -1,13 +1,15 @@
 package gr.aueb.cf.eduapp.authentication;
 
+import gr.aueb.cf.eduapp.core.exceptions.AppTooManyRequestsException;
 import gr.aueb.cf.eduapp.dto.AuthenticationRequestDTO;
 import gr.aueb.cf.eduapp.dto.AuthenticationResponseDTO;
-import gr.aueb.cf.eduapp.model.User;
 import gr.aueb.cf.eduapp.repository.UserRepository;
+import gr.aueb.cf.eduapp.security.LoginRateLimiter;
 import lombok.RequiredArgsConstructor;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
+import org.springframework.security.core.AuthenticationException;
 import org.springframework.stereotype.Service;
 
 @Service // Marks this class as a Spring service (a singleton bean for business logic)
@@ -17,22 +19,44 @@ public class AuthenticationService {
     private final JwtService jwtService; // Generates and validates JWT tokens
     private final UserRepository userRepository; // Used to look up users (though not directly used here)
     private final AuthenticationManager authenticationManager; // Authenticates credentials (username + password)
+    private final LoginRateLimiter loginRateLimiter; // Per-IP and per-username limit on login attempts
+    private final TokenRevocationService tokenRevocationService; // Revokes tokens on logout
+
+    public AuthenticationResponseDTO authenticate(AuthenticationRequestDTO dto, String clientIp)
+            throws AppTooManyRequestsException {
+        // Rejects brute-force attempts before any password hash is computed
+        if (!loginRateLimiter.tryAcquire(dto.username(), clientIp)) {
+            throw new AppTooManyRequestsException("Login", "Too many login attempts, try again later");
+        }
 
-    public AuthenticationResponseDTO authenticate(AuthenticationRequestDTO dto) {
         // This performs the actual authentication step.
         // If the credentials are wrong, an exception is thrown here.
-        Authentication authentication = authenticationManager.authenticate(
-                new UsernamePasswordAuthenticationToken(dto.username(), dto.password())
-        );
+        Authentication authentication;
+        try {
+            authentication = authenticationManager.authenticate(
+                    new UsernamePasswordAuthenticationToken(dto.username(), dto.password())
+            );
+        } catch (AuthenticationException e) {
+            loginRateLimiter.onFailure(dto.username());     // only failures count against the username
+            throw e;
+        }
 
         // Gets the authenticated user (Spring Security stores it as the principal)
-        User user = (User) authentication.getPrincipal();
+        UserPrincipal user = (UserPrincipal) authentication.getPrincipal();
 
-        // Generates a JWT for the authenticated user, including the user's role
-        String token = jwtService.generateToken(authentication.getName(), user.getRole().name());
+        // Generates a JWT for the authenticated user, including the user's id, role and current token epoch
+        String token = jwtService.generateToken(user.getId(), authentication.getName(), user.getRole().name(),
+                user.getCurrentTokenEpoch());
 
         // Return user's info and token in a DTO to the frontend
         return new AuthenticationResponseDTO(user.getFirstname(), user.getLastname(), token);
     }
+
+    /**
+     * Revokes the given token, it is rejected from now on even though it has not expired.
+     */
+    public void logout(String token) {
+        tokenRevocationService.revoke(jwtService.validateToken(token));
+    }
 }
 
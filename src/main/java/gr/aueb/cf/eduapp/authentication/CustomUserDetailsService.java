@@ -1,24 +1,46 @@
 package gr.aueb.cf.eduapp.authentication;
 
 import gr.aueb.cf.eduapp.repository.UserRepository;
+import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 
 @Service
 @RequiredArgsConstructor
-public class CustomUserDetailsService implements UserDetailsService {
+@Slf4j
+public class CustomUserDetailsService implements UserDetailsService, UserDetailsPasswordService {
 
     private final UserRepository userRepository;
+    private final PrincipalCache principalCache;
 
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
-        // Spring Security calls this during authentication.
+        // Spring Security calls this during authentication and on every JWT request.
+        // Served from the principal cache, falling back to the DB on a miss.
+        return principalCache.get(username, this::loadFromDatabase);
+    }
+
+    /**
+     * Called by Spring Security after a successful login whose stored hash has a lower
+     * BCrypt cost than the current one. newPassword is the raw password re-hashed with the current cost.
+     */
+    @Override
+    @Transactional
+    public UserDetails updatePassword(UserDetails user, String newPassword) {
+        userRepository.updatePassword(user.getUsername(), newPassword);
+        principalCache.invalidate(user.getUsername());
+        log.info("Password hash of username={} upgraded", user.getUsername());
+        return user instanceof UserPrincipal principal ? principal.withPassword(newPassword) : user;
+    }
+
+    private UserDetails loadFromDatabase(String username) {
         // We look up the user by username and throw an exception if not found.
-        return userRepository.findByUsername(username)
+        return userRepository.findPrincipalByUsername(username)
                 .orElseThrow(() -> new UsernameNotFoundException("User not found with username:" + username));
     }
 }
-
@@ -1,10 +1,17 @@
 package gr.aueb.cf.eduapp.authentication;
 
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.JwtException;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Service;
@@ -12,6 +19,8 @@ import org.springframework.stereotype.Service;
 import java.security.Key;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 
 @Service
@@ -23,29 +32,73 @@ public class JwtService {
     @Value("${app.security.jwt-expiration}")
     private long jwtExpiration; // How long the JWT should be valid (in milliseconds)
 
+    @Autowired(required = false)
+    private MeterRegistry meterRegistry = Metrics.globalRegistry;
+
+    // Built once at startup. The HMAC key and the parser are immutable and thread-safe,
+    // so there is no need to decode the secret or rebuild the parser on every request.
+    private Key signInKey;
+    private JwtParser jwtParser;
+    private Timer validTokenTimer;
+    private Timer invalidTokenTimer;
+
+    @PostConstruct
+    void init() {
+        signInKey = getSignInKey();
+        jwtParser = Jwts.parserBuilder()
+                .setSigningKey(signInKey)
+                .build();
+        validTokenTimer = verificationTimer("valid");
+        invalidTokenTimer = verificationTimer("invalid");
+    }
+
     /**
      * Generates a JWT with the username as the subject and includes the user's role in the payload.
+     * It also carries the user's id and token epoch, so that it can be revoked by bumping the epoch
+     * (see {@link TokenEpochRegistry}), even after the username changes.
      */
-    public String generateToken(String username, String role) {
+    public String generateToken(long userId, String username, String role, int epoch) {
         var claims = new HashMap<String, Object>();
+        claims.put("uid", userId);
         claims.put("role", role);
+        claims.put("epoch", epoch);
 
         return Jwts.builder()
                 .setIssuer("self") // Just an example value
                 .setClaims(claims)
+                .setId(UUID.randomUUID().toString())   // jti, lets a single token be revoked
                 .setSubject(username)
                 .setIssuedAt(new Date(System.currentTimeMillis()))
                 .setExpiration(new Date(System.currentTimeMillis() + jwtExpiration))
-                .signWith(getSignInKey(), SignatureAlgorithm.HS256)
+                .signWith(signInKey, SignatureAlgorithm.HS256)
                 .compact();
     }
 
+    /**
+     * Parses the token once, verifying its signature and expiration, and returns its claims.
+     * Throws {@link io.jsonwebtoken.ExpiredJwtException} for expired tokens and
+     * {@link io.jsonwebtoken.JwtException} for any other invalid token.
+     * Timed as "eduapp.jwt.verification", tagged by outcome.
+     */
+    public TokenClaims validateToken(String token) {
+        long start = System.nanoTime();
+        try {
+            TokenClaims claims = TokenClaims.from(extractAllClaims(token));
+            validTokenTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            return claims;
+        } catch (JwtException | IllegalArgumentException e) {
+            invalidTokenTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            throw e;
+        }
+    }
+
     /**
      * Validates the JWT: checks that the username matches and that the token hasn't expired.
      */
     public boolean isTokenValid(String token, UserDetails userDetails) {
-        final String subject = extractSubject(token);
-        return (subject.equals(userDetails.getUsername())) && !isTokenExpired(token);
+        // Expired tokens are rejected by the parser itself, so a single parse is enough
+        final String subject = validateToken(token).subject();
+        return subject != null && subject.equals(userDetails.getUsername());
     }
 
     public String getStringClaim(String token, String claim) {
@@ -61,25 +114,22 @@ public class JwtService {
         return claimsResolver.apply(claims);
     }
 
-    private boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
-    }
-
-    private Date extractExpiration(String token) {
-        return extractClaim(token, Claims::getExpiration);
-    }
-
     /**
      * Extracts all claims (like subject, role, expiration, etc.) from a token.
      */
     private Claims extractAllClaims(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(getSignInKey())
-                .build()
+        return jwtParser
                 .parseClaimsJws(token)
                 .getBody();
     }
 
+    private Timer verificationTimer(String outcome) {
+        return Timer.builder("eduapp.jwt.verification")
+                .description("JWT parsing with signature and expiration checks")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
     /**
      * Converts the base64 secret key into an HMAC-SHA key for signing JWTs.
      */
@@ -0,0 +1,66 @@
+package gr.aueb.cf.eduapp.authentication;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import gr.aueb.cf.eduapp.core.events.UserPrincipalChangedEvent;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.function.Function;
+
+/**
+ * Bounded, expiring cache of the principals loaded by {@link CustomUserDetailsService}.
+ * Concurrent lookups of the same username are collapsed into a single load.
+ * Entries are dropped once a change to the user's role, active flag or password commits.
+ * Hit/miss/eviction counters are published as the "principals" cache metrics.
+ */
+@Component
+@Slf4j
+public class PrincipalCache {
+
+    private final boolean enabled;
+    private final Cache<String, UserDetails> cache;
+
+    public PrincipalCache(@Value("${app.security.principal-cache.enabled:true}") boolean enabled,
+                          @Value("${app.security.principal-cache.max-size:10000}") long maxSize,
+                          @Value("${app.security.principal-cache.ttl:PT5M}") Duration ttl,
+                          MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "principals");
+    }
+
+    /**
+     * Returns the cached principal or loads it. Exceptions thrown by the loader
+     * (e.g. user not found) are propagated and nothing is cached.
+     */
+    public UserDetails get(String username, Function<String, UserDetails> loader) {
+        if (!enabled) return loader.apply(username);
+        return cache.get(username, loader);
+    }
+
+    public void invalidate(String username) {
+        cache.invalidate(username);
+    }
+
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    @TransactionalEventListener
+    public void onUserPrincipalChanged(UserPrincipalChangedEvent event) {
+        invalidate(event.username());
+        log.debug("Cached principal for username={} invalidated", event.username());
+    }
+}
@@ -0,0 +1,27 @@
+package gr.aueb.cf.eduapp.authentication;
+
+import io.jsonwebtoken.Claims;
+
+import java.time.Instant;
+
+/**
+ * Immutable view of the claims of a JWT whose signature and expiration
+ * have already been verified by {@link JwtService#validateToken(String)}.
+ */
+public record TokenClaims(String jti, Long userId, String subject, String role, int epoch, Instant expiresAt) {
+
+    public static TokenClaims from(Claims claims) {
+        Integer epoch = claims.get("epoch", Integer.class);    // tokens issued before epochs existed have none
+        return new TokenClaims(
+                claims.getId(),
+                claims.get("uid", Long.class),                  // null for tokens issued before it was added
+                claims.getSubject(),
+                claims.get("role", String.class),
+                epoch == null ? 0 : epoch,
+                claims.getExpiration() == null ? null : claims.getExpiration().toInstant());
+    }
+
+    public boolean isExpired(Instant now) {
+        return expiresAt != null && !expiresAt.isAfter(now);
+    }
+}
@@ -0,0 +1,6 @@
+package gr.aueb.cf.eduapp.authentication;
+
+/**
+ * Id and current token epoch of a user, as loaded by {@link TokenEpochRegistry}.
+ */
+public record TokenEpoch(Long userId, Integer epoch) {}
@@ -0,0 +1,49 @@
+package gr.aueb.cf.eduapp.authentication;
+
+import gr.aueb.cf.eduapp.core.events.UserPrincipalChangedEvent;
+import gr.aueb.cf.eduapp.repository.UserRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory table of the current token epoch per user id.
+ * A token is accepted only if the epoch it was issued with is not older than the user's
+ * current epoch, so bumping the epoch revokes every token issued before. Epochs are keyed by
+ * the user id the token carries, not by its subject, so a username change revokes the tokens
+ * issued to the old username on every node. Tokens without a user id are never current.
+ * Only users whose epoch was ever raised are kept, the rest are implicitly at epoch 0.
+ * Changes made on this node apply immediately, changes made elsewhere are picked up
+ * by the background refresh.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class TokenEpochRegistry {
+
+    private final UserRepository userRepository;
+    private final Map<Long, Integer> epochs = new ConcurrentHashMap<>();
+
+    public boolean isCurrent(Long userId, int tokenEpoch) {
+        return userId != null && tokenEpoch >= epochs.getOrDefault(userId, 0);
+    }
+
+    @TransactionalEventListener
+    public void onUserPrincipalChanged(UserPrincipalChangedEvent event) {
+        epochs.merge(event.userId(), event.tokenEpoch(), Math::max);
+    }
+
+    @Scheduled(fixedDelayString = "${app.security.token-epoch-refresh-ms:30000}")
+    public void refresh() {
+        List<TokenEpoch> raised = userRepository.findRaisedTokenEpochs();
+        // Epochs only ever grow, so merging keeps any newer local bump made during the query
+        raised.forEach(e -> epochs.merge(e.userId(), e.epoch(), Math::max));
+        log.debug("Token epochs refreshed, {} users with raised epoch", raised.size());
+    }
+}
@@ -0,0 +1,84 @@
+package gr.aueb.cf.eduapp.authentication;
+
+import gr.aueb.cf.eduapp.core.BloomFilter;
+import gr.aueb.cf.eduapp.model.RevokedToken;
+import gr.aueb.cf.eduapp.repository.RevokedTokenRepository;
+import jakarta.transaction.Transactional;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Revocation of single JWTs (by jti) before they expire.
+ * Revoked ids are persisted in revoked_tokens, which is the source of truth shared by all nodes,
+ * and mirrored in an in-memory Bloom filter. The filter answers "definitely not revoked" for almost
+ * every request without touching the DB, only a filter hit is confirmed against the table.
+ * The filter is rebuilt periodically, which drops expired ids and picks up revocations of other nodes.
+ */
+@Service
+@Slf4j
+public class TokenRevocationService {
+
+    private static final double FALSE_POSITIVE_PROBABILITY = 0.001;
+
+    private final RevokedTokenRepository revokedTokenRepository;
+    private final long expectedRevocations;
+    private volatile BloomFilter revokedJtis;
+    // Revoked on this node but not yet seen by a rebuild query, re-applied to every new filter
+    private final Set<String> pendingJtis = ConcurrentHashMap.newKeySet();
+
+    public TokenRevocationService(RevokedTokenRepository revokedTokenRepository,
+                                  @Value("${app.security.revocation.expected-tokens:100000}") long expectedRevocations) {
+        this.revokedTokenRepository = revokedTokenRepository;
+        this.expectedRevocations = expectedRevocations;
+        this.revokedJtis = new BloomFilter(expectedRevocations, FALSE_POSITIVE_PROBABILITY);
+    }
+
+    public boolean isRevoked(TokenClaims claims) {
+        // Tokens issued before jti existed can only be revoked through the token epoch
+        if (claims.jti() == null) return false;
+        if (!revokedJtis.mightContain(claims.jti())) return false;
+        return revokedTokenRepository.existsById(claims.jti());
+    }
+
+    @Transactional
+    public void revoke(TokenClaims claims) {
+        if (claims.jti() == null || claims.isExpired(Instant.now())) return;
+
+        revokedTokenRepository.save(new RevokedToken(claims.jti(), LocalDateTime.ofInstant(claims.expiresAt(), ZoneOffset.UTC)));
+        pendingJtis.add(claims.jti());
+        revokedJtis.put(claims.jti());
+        log.info("Token of username={} revoked", claims.subject());
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(initialDelayString = "${app.security.revocation.refresh-ms:60000}",
+            fixedDelayString = "${app.security.revocation.refresh-ms:60000}")
+    public void rebuild() {
+        List<String> jtis = revokedTokenRepository.findUnexpiredJtis(LocalDateTime.now(ZoneOffset.UTC));
+        BloomFilter filter = new BloomFilter(Math.max(expectedRevocations, jtis.size() * 2L), FALSE_POSITIVE_PROBABILITY);
+        jtis.forEach(filter::put);
+        revokedJtis = filter;
+        // Revocations that raced with the query went into the old filter, carry them over
+        pendingJtis.forEach(filter::put);
+        jtis.forEach(pendingJtis::remove);
+        log.debug("Revoked tokens filter rebuilt with {} ids, {} bytes", jtis.size(), filter.memoryBytes());
+    }
+
+    @Transactional
+    @Scheduled(fixedDelayString = "${app.security.revocation.prune-ms:3600000}")
+    public void pruneExpired() {
+        int deleted = revokedTokenRepository.deleteExpired(LocalDateTime.now(ZoneOffset.UTC));
+        if (deleted > 0) log.info("{} expired revoked tokens pruned", deleted);
+    }
+}
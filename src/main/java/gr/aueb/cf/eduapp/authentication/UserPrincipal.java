@@ -0,0 +1,84 @@
+package gr.aueb.cf.eduapp.authentication;
+
+import gr.aueb.cf.eduapp.core.enums.Role;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Lightweight security principal, holding only what authentication and authorization need.
+ * Loaded with a single query on users (see UserRepository#findPrincipalByUsername),
+ * without the Employee/Teacher associations of the User entity.
+ * Authorities follow {@link gr.aueb.cf.eduapp.model.User#getAuthorities()}.
+ */
+@Getter
+@AllArgsConstructor
+public class UserPrincipal implements UserDetails {
+
+    private final Long id;
+    private final String username;
+    private final String password;
+    private final Role role;
+    private final Boolean isActive;
+    private final String firstname;
+    private final String lastname;
+    private final Integer tokenEpoch;
+
+    /**
+     * Builds the principal from an already verified token, without touching the database.
+     */
+    public static UserPrincipal fromToken(TokenClaims claims) {
+        return new UserPrincipal(claims.userId(), claims.subject(), null, roleOf(claims),
+                true, null, null, claims.epoch());
+    }
+
+    // A signed token with a missing or unknown role is rejected like any other invalid token (401)
+    private static Role roleOf(TokenClaims claims) {
+        if (claims.role() == null) throw new BadCredentialsException("Token has no role");
+        try {
+            return Role.valueOf(claims.role());
+        } catch (IllegalArgumentException e) {
+            throw new BadCredentialsException("Token has an unknown role");
+        }
+    }
+
+    public UserPrincipal withPassword(String newPassword) {
+        return new UserPrincipal(id, username, newPassword, role, isActive, firstname, lastname, tokenEpoch);
+    }
+
+    public int getCurrentTokenEpoch() {
+        return tokenEpoch == null ? 0 : tokenEpoch;
+    }
+
+    @Override
+    public Collection<? extends GrantedAuthority> getAuthorities() {
+        return List.of(new SimpleGrantedAuthority(role.name()));
+    }
+
+    @Override
+    public boolean isAccountNonExpired() {
+        return true;
+    }
+
+    @Override
+    public boolean isAccountNonLocked() {
+        return true;
+    }
+
+    @Override
+    public boolean isCredentialsNonExpired() {
+        return true;
+    }
+
+    // Deactivated users cannot log in (is_active defaults to true)
+    @Override
+    public boolean isEnabled() {
+        return isActive == null || isActive;
+    }
+}
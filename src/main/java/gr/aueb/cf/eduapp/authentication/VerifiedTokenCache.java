@@ -0,0 +1,120 @@
+package gr.aueb.cf.eduapp.authentication;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cache of already verified tokens, in front of {@link JwtService#validateToken(String)}.
+ * A single-page app sends the same bearer token on every call, so after the first request
+ * the token costs a SHA-256 digest and a hash lookup instead of base64 decoding,
+ * HMAC verification and JSON parsing.
+ * Entries are keyed by the token digest (the token itself is never kept) and expire
+ * together with the token. Only successfully verified tokens are cached, and revocation
+ * is still checked on every request by the filter.
+ * Hit/miss counts are published as the "verifiedTokens" cache metrics and
+ * lookup latency as the "eduapp.jwt.validation" timer, tagged by cache result.
+ */
+@Component
+public class VerifiedTokenCache {
+
+    private static final ThreadLocal<MessageDigest> SHA_256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    });
+
+    private final JwtService jwtService;
+    private final boolean enabled;
+    private final Cache<String, TokenClaims> cache;
+    private final Timer hitTimer;
+    private final Timer missTimer;
+
+    public VerifiedTokenCache(JwtService jwtService,
+                              @Value("${app.security.token-cache.enabled:true}") boolean enabled,
+                              @Value("${app.security.token-cache.max-size:50000}") long maxSize,
+                              MeterRegistry meterRegistry) {
+        this.jwtService = jwtService;
+        this.enabled = enabled;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new ExpireWithToken())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "verifiedTokens");
+
+        this.hitTimer = validationTimer(meterRegistry, "hit");
+        this.missTimer = validationTimer(meterRegistry, "miss");
+    }
+
+    /**
+     * Same contract as {@link JwtService#validateToken(String)}: returns the claims of a valid token
+     * or throws {@link io.jsonwebtoken.JwtException}.
+     */
+    public TokenClaims validate(String token) {
+        if (!enabled) return jwtService.validateToken(token);
+
+        long start = System.nanoTime();
+        String key = digest(token);
+        TokenClaims claims = cache.getIfPresent(key);
+        if (claims != null && !claims.isExpired(Instant.now())) {
+            hitTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            return claims;
+        }
+
+        claims = jwtService.validateToken(token);
+        cache.put(key, claims);
+        missTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return claims;
+    }
+
+    private static String digest(String token) {
+        byte[] hash = SHA_256.get().digest(token.getBytes(StandardCharsets.US_ASCII));
+        return Base64.getEncoder().encodeToString(hash);
+    }
+
+    private static Timer validationTimer(MeterRegistry meterRegistry, String result) {
+        return Timer.builder("eduapp.jwt.validation")
+                .description("Time to validate a bearer token")
+                .tag("cache", result)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    /**
+     * Each entry lives until its token expires.
+     */
+    private static final class ExpireWithToken implements Expiry<String, TokenClaims> {
+
+        @Override
+        public long expireAfterCreate(String key, TokenClaims claims, long currentTime) {
+            if (claims.expiresAt() == null) return 0;   // not cacheable
+            return Math.max(Duration.between(Instant.now(), claims.expiresAt()).toNanos(), 0);
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, TokenClaims claims, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, claims, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String key, TokenClaims claims, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package gr.aueb.cf.eduapp.core;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.web.util.matcher.IpAddressMatcher;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Resolves the IP of the client that sent a request. X-Forwarded-For is only honoured when the
+ * request comes from one of the trusted proxies ({@code app.security.trusted-proxies}, addresses or
+ * CIDR ranges), and then the right-most hop that is not a trusted proxy is the client: every hop
+ * left of it was written by the client itself and can be anything.
+ */
+@Component
+public class ClientIpResolver {
+
+    private final List<IpAddressMatcher> trustedProxies;
+
+    public ClientIpResolver(@Value("${app.security.trusted-proxies:}") List<String> trustedProxies) {
+        this.trustedProxies = trustedProxies.stream()
+                .map(String::trim)
+                .filter(proxy -> !proxy.isEmpty())
+                .map(IpAddressMatcher::new)
+                .toList();
+    }
+
+    public String resolve(HttpServletRequest request) {
+        String clientIp = request.getRemoteAddr();                      // direct connection
+        String forwardedFor = request.getHeader("X-Forwarded-For");     // if proxy is used like Nginx/Caddy
+        if (forwardedFor != null && isTrustedProxy(clientIp)) {
+            String[] hops = forwardedFor.split(",");
+            for (int i = hops.length - 1; i >= 0; i--) {
+                String hop = hops[i].trim();
+                if (!isIpLiteral(hop)) break;                           // garbage ends the trusted chain
+                clientIp = hop;
+                if (!isTrustedProxy(hop)) break;
+            }
+        }
+        if ("0:0:0:0:0:0:0:1".equals(clientIp)) {
+            clientIp = "127.0.0.1";
+        }
+        return clientIp;
+    }
+
+    private boolean isTrustedProxy(String ip) {
+        if (!isIpLiteral(ip)) return false;
+        for (IpAddressMatcher proxy : trustedProxies) {
+            if (proxy.matches(ip)) return true;
+        }
+        return false;
+    }
+
+    // Only IP literals are matched, so that a forged hop can never trigger a DNS lookup
+    private static boolean isIpLiteral(String value) {
+        if (value == null || value.isEmpty() || value.length() > 45) return false;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (Character.digit(c, 16) < 0 && c != '.' && c != ':') return false;
+        }
+        return value.indexOf('.') >= 0 || value.indexOf(':') >= 0;
+    }
+}
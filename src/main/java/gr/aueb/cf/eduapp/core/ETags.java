@@ -0,0 +1,82 @@
+package gr.aueb.cf.eduapp.core;
+
+import gr.aueb.cf.eduapp.core.exceptions.AppObjectPreconditionFailedException;
+import gr.aueb.cf.eduapp.core.filters.Paginated;
+import gr.aueb.cf.eduapp.dto.VersionedDTO;
+import org.springframework.http.ResponseEntity;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Objects;
+
+/**
+ * Validators of conditional requests for versioned DTOs: strong ETags derived from the entity
+ * {@code @Version} and Last-Modified from {@code updatedAt}.
+ */
+public final class ETags {
+
+    private ETags() {}
+
+    public static String of(VersionedDTO dto) {
+        return "\"" + dto.version() + "\"";
+    }
+
+    /**
+     * ETag of a page: changes whenever an element is added, removed, reordered or updated,
+     * or the paging metadata changes.
+     */
+    public static String of(Paginated<? extends VersionedDTO> page) {
+        long hash = Objects.hash(page.getCurrentPage(), page.getPageSize(), page.getTotalPages(),
+                page.getTotalElements(), page.isHasNext(), page.getNextCursor());
+        for (VersionedDTO dto : page.getData()) {
+            hash = 31 * hash + Objects.hashCode(dto.version());
+            hash = 31 * hash + dto.hashCode();
+        }
+        return "\"" + Long.toHexString(hash) + "\"";
+    }
+
+    /**
+     * Epoch millis of the latest update among the DTOs, or -1 if unknown.
+     */
+    public static long lastModified(Iterable<? extends VersionedDTO> dtos) {
+        long lastModified = -1;
+        for (VersionedDTO dto : dtos) {
+            lastModified = Math.max(lastModified, lastModified(dto));
+        }
+        return lastModified;
+    }
+
+    public static long lastModified(VersionedDTO dto) {
+        LocalDateTime updatedAt = dto.updatedAt();
+        return updatedAt == null ? -1 : updatedAt.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    /**
+     * 200 with the given validators. Spring answers GET/HEAD requests whose If-None-Match or
+     * If-Modified-Since still match with 304 and no body.
+     */
+    public static <T> ResponseEntity<T> ok(T body, String etag, long lastModified) {
+        ResponseEntity.BodyBuilder builder = ResponseEntity.ok().eTag(etag);
+        if (lastModified >= 0) builder.lastModified(lastModified);
+        return builder.body(body);
+    }
+
+    /**
+     * The version required by an If-Match header: null if the header is absent or "*",
+     * otherwise the version of the (single, strong) ETag it carries.
+     */
+    public static Long requiredVersion(String ifMatch) throws AppObjectPreconditionFailedException {
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.trim().equals("*")) return null;
+
+        String etag = ifMatch.trim();
+        if (etag.startsWith("W/")) {
+            // Weak comparison never matches for If-Match (RFC 9110 13.1.1)
+            throw new AppObjectPreconditionFailedException("ETag", "If-Match requires a strong ETag");
+        }
+        try {
+            return Long.valueOf(etag.replace("\"", ""));
+        } catch (NumberFormatException e) {
+            throw new AppObjectPreconditionFailedException("ETag", "If-Match " + ifMatch + " does not match the current ETag");
+        }
+    }
+}
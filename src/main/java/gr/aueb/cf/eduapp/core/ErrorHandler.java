@@ -1,11 +1,17 @@
 package gr.aueb.cf.eduapp.core;
 
+import com.fasterxml.jackson.databind.exc.InvalidFormatException;
 import gr.aueb.cf.eduapp.core.exceptions.*;
 import gr.aueb.cf.eduapp.dto.ResponseMessageDTO;
 import jakarta.servlet.http.HttpServletRequest;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.HttpMessageNotReadableException;
 import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.core.AuthenticationException;
 import org.springframework.validation.BindingResult;
@@ -21,8 +27,11 @@ import java.util.Map;
 
 @ControllerAdvice
 @Slf4j
+@RequiredArgsConstructor
 public class ErrorHandler extends ResponseEntityExceptionHandler {
 
+    private final ClientIpResolver clientIpResolver;
+
     @ExceptionHandler(ValidationException.class)
     public ResponseEntity<Map<String, String>> handleValidationException(ValidationException e) {
         log.error("validation failed. Message={}", e.getMessage(), e);
@@ -36,6 +45,23 @@ public class ErrorHandler extends ResponseEntityExceptionHandler {
         return new ResponseEntity<>(errors, HttpStatus.BAD_REQUEST);
     }
 
+    // An unknown enum constant (e.g. a role) or a malformed value in the body, answered like any invalid argument
+    @Override
+    protected ResponseEntity<Object> handleHttpMessageNotReadable(HttpMessageNotReadableException e, HttpHeaders headers,
+                                                                  HttpStatusCode status, WebRequest request) {
+        log.warn("Unreadable request body. Message={}", e.getMessage());
+        if (e.getCause() instanceof InvalidFormatException invalidFormat && !invalidFormat.getPath().isEmpty()) {
+            String field = invalidFormat.getPath().get(invalidFormat.getPath().size() - 1).getFieldName();
+            String code = field == null ? "Body" : Character.toUpperCase(field.charAt(0)) + field.substring(1);
+            return ResponseEntity
+                    .status(HttpStatus.BAD_REQUEST)
+                    .body(new ResponseMessageDTO(code + "InvalidArgument", "Invalid value " + invalidFormat.getValue() + " for " + field));
+        }
+        return ResponseEntity
+                .status(HttpStatus.BAD_REQUEST)
+                .body(new ResponseMessageDTO("BodyInvalidArgument", "The request body could not be read"));
+    }
+
     @ExceptionHandler(AppObjectNotFoundException.class)
     public ResponseEntity<ResponseMessageDTO> handleConstraintViolationException(AppObjectNotFoundException e) {
         log.warn("Entity not found. Message={}", e.getMessage());
@@ -70,6 +96,23 @@ public class ErrorHandler extends ResponseEntityExceptionHandler {
                 .body(new ResponseMessageDTO(e.getCode(), e.getMessage()));
     }
 
+    @ExceptionHandler(AppObjectPreconditionFailedException.class)
+    public ResponseEntity<ResponseMessageDTO> handlePreconditionFailed(AppObjectPreconditionFailedException e) {
+        log.warn("Precondition failed. Message={}", e.getMessage());
+        return ResponseEntity
+                .status(HttpStatus.PRECONDITION_FAILED)     // 412
+                .body(new ResponseMessageDTO(e.getCode(), e.getMessage()));
+    }
+
+    // A concurrent update committed between our read and our write (version check at flush)
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    public ResponseEntity<ResponseMessageDTO> handleOptimisticLockingFailure(OptimisticLockingFailureException e) {
+        log.warn("Concurrent update detected. Message={}", e.getMessage());
+        return ResponseEntity
+                .status(HttpStatus.PRECONDITION_FAILED)
+                .body(new ResponseMessageDTO("ConcurrentUpdatePreconditionFailed", "The resource was modified concurrently"));
+    }
+
     @ExceptionHandler(AppServerException.class)
     public ResponseEntity<ResponseMessageDTO> handleConstraintViolationException(AppServerException e) {
         log.warn("Server error with message={}", e.getMessage());
@@ -79,6 +122,25 @@ public class ErrorHandler extends ResponseEntityExceptionHandler {
     }
 
 
+    @ExceptionHandler(AppTooManyRequestsException.class)
+    public ResponseEntity<ResponseMessageDTO> handleTooManyRequests(AppTooManyRequestsException e, HttpServletRequest request) {
+        log.warn("Rate limit exceeded for IP={}. Message={}", clientIpResolver.resolve(request), e.getMessage());
+        return ResponseEntity
+                .status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, "60")
+                .body(new ResponseMessageDTO(e.getCode(), e.getMessage()));
+    }
+
+    @ExceptionHandler(AppServerBusyException.class)
+    public ResponseEntity<ResponseMessageDTO> handleServerBusy(AppServerBusyException e) {
+        log.warn("Request rejected, server busy. Message={}", e.getMessage());
+        return ResponseEntity
+                .status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(new ResponseMessageDTO(e.getCode(), e.getMessage()));
+    }
+
+
     @ExceptionHandler(IOException.class)
     public ResponseEntity<ResponseMessageDTO> handleConstraintViolationException(IOException e) {
         log.error("File upload failed with message={}", e.getMessage());
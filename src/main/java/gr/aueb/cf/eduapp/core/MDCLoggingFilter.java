@@ -1,11 +1,16 @@
 package gr.aueb.cf.eduapp.core;
 
+import gr.aueb.cf.eduapp.core.jdbc.SqlStatementCounter;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 
+import lombok.extern.slf4j.Slf4j;
 import org.slf4j.MDC;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Component;
@@ -16,37 +21,68 @@ import java.util.UUID;
 
 /*
  * Mapped Diagnostic Context for contextual info inject into loggers.
+ * Also counts the SQL statements of the request and their JDBC time ("sqlCount", "sqlMs"),
+ * warning when a request crosses the thresholds (usually an N+1 from a lazy load).
+ * Runs ahead of the security chain (right inside ServerTimingFilter), so that the count includes
+ * the user lookup of the JWT filter, which also puts the authenticated user in the MDC.
  */
 @Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 1)
+@Slf4j
 public class MDCLoggingFilter extends OncePerRequestFilter {
 
+    // The statement counts of the request, for the filters around this one (e.g. ServerTimingFilter)
+    public static final String SQL_COUNTS_ATTRIBUTE = MDCLoggingFilter.class.getName() + ".sqlCounts";
+
+    private final ClientIpResolver clientIpResolver;
+    private final int warnStatements;
+    private final long warnJdbcMillis;
+
+    public MDCLoggingFilter(ClientIpResolver clientIpResolver,
+                            @Value("${app.sql.warn-statements:20}") int warnStatements,
+                            @Value("${app.sql.warn-jdbc-ms:500}") long warnJdbcMillis) {
+        this.clientIpResolver = clientIpResolver;
+        this.warnStatements = warnStatements;
+        this.warnJdbcMillis = warnJdbcMillis;
+    }
+
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
                                     FilterChain filterChain) throws ServletException, IOException {
         try {
+            // Replaced by the JWT filter once the request is authenticated
             String user = "anonymous";
             Authentication auth = SecurityContextHolder.getContext().getAuthentication();
             if (auth != null) user = auth.getName();
 
             // --- Client IP ---
-            String clientIp = request.getHeader("X-Forwarded-For"); // if proxy is used like Nginx/Caddy
-            if (clientIp != null && !clientIp.isEmpty()) {
-                clientIp = clientIp.split(",")[0].trim();  // Get original client IP if behind a proxy
-            } else {
-                clientIp = request.getRemoteAddr();        // Fallback to direct connection
-            }
-            if ("0:0:0:0:0:0:0:1".equals(clientIp)) {
-                clientIp = "127.0.0.1";
-            }
+            String clientIp = clientIpResolver.resolve(request);
 
             // --- Put values into MDC ---
             MDC.put("user", user);
             MDC.put("ip", clientIp);
 
+            SqlStatementCounter.start();
             filterChain.doFilter(request, response);
         } finally {
+            SqlStatementCounter.Counts sql = SqlStatementCounter.stop();
+            request.setAttribute(SQL_COUNTS_ATTRIBUTE, sql);
+            logStatements(request, sql);
             // Always clear MDC to avoid leaking data between threads
             MDC.clear();
         }
     }
-}
\ No newline at end of file
+
+    private void logStatements(HttpServletRequest request, SqlStatementCounter.Counts sql) {
+        MDC.put("sqlCount", String.valueOf(sql.statements()));
+        MDC.put("sqlMs", String.valueOf(sql.jdbcMillis()));
+
+        if (sql.statements() > warnStatements || sql.jdbcMillis() > warnJdbcMillis) {
+            log.warn("{} {} ran {} SQL statements taking {} ms in JDBC", request.getMethod(), request.getRequestURI(),
+                    sql.statements(), sql.jdbcMillis());
+        } else {
+            log.debug("{} {} ran {} SQL statements taking {} ms in JDBC", request.getMethod(), request.getRequestURI(),
+                    sql.statements(), sql.jdbcMillis());
+        }
+    }
+}
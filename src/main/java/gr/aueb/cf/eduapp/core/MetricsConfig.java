@@ -0,0 +1,41 @@
+package gr.aueb.cf.eduapp.core;
+
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.config.MeterFilter;
+import io.micrometer.core.instrument.distribution.DistributionStatisticConfig;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Latency percentiles, computed in the app and exported with the other metrics at /actuator/prometheus,
+ * for the teacher and auth endpoints and the JWT/BCrypt timers only, so that the rest of the
+ * endpoints don't pay for the extra time series.
+ */
+@Configuration
+public class MetricsConfig {
+
+    private static final String HTTP_SERVER_REQUESTS = "http.server.requests";
+
+    @Bean
+    public MeterFilter latencyPercentiles(@Value("${app.metrics.percentiles:0.5,0.95,0.99}") double[] percentiles) {
+        return new MeterFilter() {
+            @Override
+            public DistributionStatisticConfig configure(Meter.Id id, DistributionStatisticConfig config) {
+                if (!hasPercentiles(id)) return config;
+                return DistributionStatisticConfig.builder()
+                        .percentiles(percentiles)
+                        .build()
+                        .merge(config);
+            }
+        };
+    }
+
+    private static boolean hasPercentiles(Meter.Id id) {
+        if (HTTP_SERVER_REQUESTS.equals(id.getName())) {
+            String uri = id.getTag("uri");
+            return uri != null && (uri.startsWith("/api/teachers") || uri.startsWith("/api/auth"));
+        }
+        return id.getName().startsWith("eduapp.jwt.") || id.getName().startsWith("eduapp.password.");
+    }
+}
@@ -0,0 +1,180 @@
+package gr.aueb.cf.eduapp.core;
+
+import java.text.Normalizer;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+/**
+ * In-memory trigram index for case- and accent-insensitive substring (and so prefix) search over the
+ * text values of documents identified by a long id.
+ * Every trigram points to the sorted ids of the documents that contain it. A query is answered by
+ * intersecting the postings of its trigrams, smallest first, and checking the stored values of the
+ * remaining candidates, so results are exact. Queries shorter than a trigram scan the stored values.
+ * Thread-safe: searches share a read lock, updates take the write lock.
+ */
+public class NgramIndex {
+
+    private static final int N = 3;
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+
+    private final Map<Long, Postings> postings = new HashMap<>();     // trigram packed in a long -> ids
+    private final Map<Long, String[]> documents = new HashMap<>();    // id -> normalized values
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * Indexes the values of a document, replacing whatever was indexed for its id. Null values are skipped.
+     */
+    public void put(long id, String... values) {
+        String[] normalized = Arrays.stream(values).filter(Objects::nonNull).map(NgramIndex::normalize).toArray(String[]::new);
+        Set<Long> grams = grams(normalized);
+
+        lock.writeLock().lock();
+        try {
+            String[] previous = documents.put(id, normalized);
+            if (previous != null) {
+                for (Long gram : grams(previous)) {
+                    if (!grams.contains(gram)) removePosting(gram, id);
+                }
+            }
+            for (Long gram : grams) {
+                postings.computeIfAbsent(gram, g -> new Postings()).add(id);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(long id) {
+        lock.writeLock().lock();
+        try {
+            String[] previous = documents.remove(id);
+            if (previous != null) grams(previous).forEach(gram -> removePosting(gram, id));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the sorted ids of the documents with a value that contains {@code text} (ignoring case and accents),
+     * or null if more than {@code limit} documents match.
+     */
+    public long[] search(String text, int limit) {
+        String query = normalize(text);
+
+        lock.readLock().lock();
+        try {
+            return query.length() < N ? scan(query, limit) : lookup(query, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private long[] lookup(String query, int limit) {
+        List<Postings> lists = new ArrayList<>();
+        for (Long gram : grams(new String[] { query })) {
+            Postings list = postings.get(gram);
+            if (list == null) return new long[0];
+            lists.add(list);
+        }
+        lists.sort(Comparator.comparingInt(list -> list.size));
+
+        Postings smallest = lists.get(0);
+        long[] matches = new long[Math.min(smallest.size, limit + 1)];
+        int count = 0;
+        candidates:
+        for (int i = 0; i < smallest.size; i++) {
+            long id = smallest.ids[i];
+            for (int j = 1; j < lists.size(); j++) {
+                if (!lists.get(j).contains(id)) continue candidates;
+            }
+            // The trigrams may come from different values or positions, verify the substring itself
+            if (!matches(documents.get(id), query)) continue;
+            if (count == limit) return null;
+            matches[count++] = id;
+        }
+        return Arrays.copyOf(matches, count);
+    }
+
+    private long[] scan(String query, int limit) {
+        long[] matches = new long[Math.min(documents.size(), limit + 1)];
+        int count = 0;
+        for (Map.Entry<Long, String[]> document : documents.entrySet()) {
+            if (!matches(document.getValue(), query)) continue;
+            if (count == limit) return null;
+            matches[count++] = document.getKey();
+        }
+        long[] result = Arrays.copyOf(matches, count);
+        Arrays.sort(result);
+        return result;
+    }
+
+    private void removePosting(Long gram, long id) {
+        Postings list = postings.get(gram);
+        if (list != null && list.remove(id) && list.size == 0) postings.remove(gram);
+    }
+
+    private static boolean matches(String[] values, String query) {
+        for (String value : values) {
+            if (value.contains(query)) return true;
+        }
+        return false;
+    }
+
+    private static Set<Long> grams(String[] values) {
+        Set<Long> grams = new HashSet<>();
+        for (String value : values) {
+            for (int i = 0; i + N <= value.length(); i++) {
+                grams.add(((long) value.charAt(i) << 32) | ((long) value.charAt(i + 1) << 16) | value.charAt(i + 2));
+            }
+        }
+        return grams;
+    }
+
+    // Like the accent- and case-insensitive (_ai_ci) MySQL collation the LIKE search compares with:
+    // accents are decomposed and dropped, so "Γιώργος" and "ΓΙΩΡΓΟΣ" or "José" and "jose" match
+    private static String normalize(String value) {
+        String decomposed = Normalizer.normalize(value.trim(), Normalizer.Form.NFD);
+        return COMBINING_MARKS.matcher(decomposed).replaceAll("").toUpperCase(Locale.ROOT);
+    }
+
+    /**
+     * Sorted, growable array of ids. Ids are mostly appended, since new rows get increasing ids.
+     */
+    private static final class Postings {
+        private long[] ids = new long[4];
+        private int size;
+
+        boolean contains(long id) {
+            return Arrays.binarySearch(ids, 0, size, id) >= 0;
+        }
+
+        void add(long id) {
+            int index = size == 0 || ids[size - 1] < id ? -(size + 1) : Arrays.binarySearch(ids, 0, size, id);
+            if (index >= 0) return;
+            index = -(index + 1);
+            if (size == ids.length) ids = Arrays.copyOf(ids, size + (size >> 1) + 1);
+            System.arraycopy(ids, index, ids, index + 1, size - index);
+            ids[index] = id;
+            size++;
+        }
+
+        boolean remove(long id) {
+            int index = Arrays.binarySearch(ids, 0, size, id);
+            if (index < 0) return false;
+            System.arraycopy(ids, index + 1, ids, index, size - index - 1);
+            size--;
+            return true;
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package gr.aueb.cf.eduapp.core.enums;
+
+/**
+ * How the totals of a paginated response are computed.
+ */
+public enum CountMode {
+    EXACT,      // COUNT(*) on every page
+    NONE,       // no totals, only whether there is a next page
+    ESTIMATED   // a cached count, stale for at most the configured window
+}
@@ -0,0 +1,10 @@
+package gr.aueb.cf.eduapp.core.events;
+
+import gr.aueb.cf.eduapp.dto.TeacherReadOnlyDTO;
+
+/**
+ * Published when a teacher is inserted or updated. Listeners react after the transaction commits.
+ *
+ * @param teacher   the teacher as saved
+ */
+public record TeacherChangedEvent(TeacherReadOnlyDTO teacher) {}
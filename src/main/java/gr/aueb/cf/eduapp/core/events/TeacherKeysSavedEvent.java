@@ -0,0 +1,7 @@
+package gr.aueb.cf.eduapp.core.events;
+
+/**
+ * Published when a teacher is inserted or updated, with the values of its unique keys.
+ * Listeners react after the transaction commits.
+ */
+public record TeacherKeysSavedEvent(String vat, String amka, String username, String identityNumber) {}
@@ -0,0 +1,11 @@
+package gr.aueb.cf.eduapp.core.events;
+
+/**
+ * Published when something a security principal is built from changes for a user
+ * (role, active flag, password, username). Listeners react after the transaction commits.
+ *
+ * @param userId        the id the token epochs are keyed by, it survives a username change
+ * @param username      the username the cached principals are keyed by, the old one on a username change
+ * @param tokenEpoch    the user's token epoch after the change
+ */
+public record UserPrincipalChangedEvent(Long userId, String username, int tokenEpoch) {}
@@ -0,0 +1,9 @@
+package gr.aueb.cf.eduapp.core.exceptions;
+
+public class AppObjectPreconditionFailedException extends AppGenericException {
+    private static final String DEFAULT_CODE = "PreconditionFailed";
+
+    public AppObjectPreconditionFailedException(String code, String message) {
+        super(code + DEFAULT_CODE, message);
+    }
+}
@@ -0,0 +1,19 @@
+package gr.aueb.cf.eduapp.core.exceptions;
+
+import lombok.Getter;
+
+/**
+ * Thrown when a bounded resource (e.g. the password hashing pool) is saturated
+ * and the request is rejected instead of queued. Unchecked, since it can be raised
+ * from inside Spring Security callbacks such as a PasswordEncoder.
+ */
+@Getter
+public class AppServerBusyException extends RuntimeException {
+    private static final String DEFAULT_CODE = "ServerBusy";
+    private final String code;
+
+    public AppServerBusyException(String code, String message) {
+        super(message);
+        this.code = code + DEFAULT_CODE;
+    }
+}
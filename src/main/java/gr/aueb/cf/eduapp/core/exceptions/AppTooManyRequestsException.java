@@ -0,0 +1,9 @@
+package gr.aueb.cf.eduapp.core.exceptions;
+
+public class AppTooManyRequestsException extends AppGenericException {
+    private static final String DEFAULT_CODE = "TooManyRequests";
+
+    public AppTooManyRequestsException(String code, String message) {
+        super(code + DEFAULT_CODE, message);
+    }
+}
@@ -1,11 +1,13 @@
 package gr.aueb.cf.eduapp.core.filters;
 
+import gr.aueb.cf.eduapp.core.enums.CountMode;
 import io.micrometer.common.util.StringUtils;
 import lombok.Getter;
 import lombok.Setter;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.lang.Nullable;
 
 @Getter
 @Setter
@@ -15,6 +17,7 @@ public abstract class GenericFilters {
     private final static int DEFAULT_PAGE_SIZE = 10;
     private static final String DEFAULT_SORT_COLUMN = "id";
     private static final Sort.Direction DEFAULT_SORT_DIRECTION = Sort.Direction.ASC;
+    private static final CountMode DEFAULT_COUNT_MODE = CountMode.EXACT;
 
     // Request parameters (can be overridden by query params)
     private int page;
@@ -22,6 +25,14 @@ public abstract class GenericFilters {
     private Sort.Direction sortDirection;
     private String sortBy;
 
+    // Opt-in keyset pagination: "" asks for the first page, later pages pass the nextCursor
+    // of the previous response. The page number is ignored in this mode.
+    @Nullable
+    private String cursor;
+
+    // Exact, no or cached totals (offset mode only, keyset pages have no totals)
+    private CountMode countMode;
+
     // Ensure pageSize is always valid
     public int getPageSize() {
         return pageSize <= 0 ? DEFAULT_PAGE_SIZE : pageSize;
@@ -44,6 +55,17 @@ public abstract class GenericFilters {
         return this.sortBy;
     }
 
+    // Return default count mode if not set
+    public CountMode getCountMode() {
+        if (this.countMode == null) return DEFAULT_COUNT_MODE;
+        return this.countMode;
+    }
+
+    // Keyset (seek) pagination instead of OFFSET when a cursor is given
+    public boolean isKeysetMode() {
+        return this.cursor != null;
+    }
+
     // Create a Pageable object used in queries (page, size, sort)
     public Pageable getPageable(){
         return PageRequest.of(getPage(), getPageSize(), getSort());
@@ -0,0 +1,76 @@
+package gr.aueb.cf.eduapp.core.filters;
+
+import gr.aueb.cf.eduapp.core.exceptions.AppObjectInvalidArgumentException;
+import org.springframework.data.domain.Sort;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+/**
+ * Position of the last row of a keyset page: the value of the sort key and the id (tiebreaker).
+ * Clients only see it as an opaque token. The token also carries the sort it was issued for,
+ * so that it can't be replayed against a different ordering.
+ */
+public record KeysetCursor(String sortBy, Sort.Direction direction, Long lastId, String lastValue) {
+
+    private static final String SEPARATOR = "|";
+    private static final String NULL_VALUE = "~";
+    private static final String VALUE_PREFIX = "=";
+
+    public String encode() {
+        String value = lastValue == null ? NULL_VALUE : VALUE_PREFIX + lastValue;
+        String payload = String.join(SEPARATOR, sortBy, direction.name(), lastId.toString(), value);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(payload.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decodes a token returned by a previous page. Blank tokens start from the first page and decode to null.
+     */
+    public static KeysetCursor decode(String token, String sortBy, Sort.Direction direction)
+            throws AppObjectInvalidArgumentException {
+        if (token == null || token.isBlank()) return null;
+
+        try {
+            String payload = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] parts = payload.split("\\" + SEPARATOR, 4);     // the value is last, it may contain the separator
+            if (parts.length != 4) throw new IllegalArgumentException("Malformed cursor");
+
+            if (!parts[0].equals(sortBy) || Sort.Direction.fromString(parts[1]) != direction) {
+                throw new AppObjectInvalidArgumentException("Cursor", "Cursor was issued for a different sort order");
+            }
+
+            String value = parts[3].equals(NULL_VALUE) ? null : parts[3].substring(VALUE_PREFIX.length());
+            return new KeysetCursor(sortBy, direction, Long.valueOf(parts[2]), value);
+        } catch (IllegalArgumentException e) {
+            throw new AppObjectInvalidArgumentException("Cursor", "Invalid cursor");
+        }
+    }
+
+    /**
+     * Converts the last value of the sort key back to the Java type of the sorted attribute.
+     * Throws {@link IllegalArgumentException} for values that don't parse as that type.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public Comparable<?> lastValueAs(Class<?> type) {
+        if (lastValue == null) return null;
+
+        try {
+            Comparable<?> value;
+            if (type == String.class) value = lastValue;
+            else if (type == Long.class || type == long.class) value = Long.valueOf(lastValue);
+            else if (type == Integer.class || type == int.class) value = Integer.valueOf(lastValue);
+            else if (type == Boolean.class || type == boolean.class) value = Boolean.valueOf(lastValue);
+            else if (type == LocalDateTime.class) value = LocalDateTime.parse(lastValue);
+            else if (type == LocalDate.class) value = LocalDate.parse(lastValue);
+            else if (type == Instant.class) value = Instant.parse(lastValue);
+            else if (type.isEnum()) value = Enum.valueOf((Class) type, lastValue);
+            else throw new IllegalArgumentException("Cannot seek on attributes of type " + type.getSimpleName());
+            return value;
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid cursor value for type " + type.getSimpleName(), e);
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package gr.aueb.cf.eduapp.core.filters;
+
+import gr.aueb.cf.eduapp.core.exceptions.AppObjectInvalidArgumentException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.Base64;
+
+/**
+ * Signs the {@link KeysetCursor} tokens handed to clients with an HMAC, so that a client can only
+ * send back a cursor the server issued: the sort key and last value it carries are never taken from
+ * a forged token. The key defaults to the JWT secret, so the cursors of one node are valid on all.
+ */
+@Component
+public class KeysetCursorSigner {
+
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final int SIGNATURE_BYTES = 16;      // 128 bits are plenty against forgery, and keep the token short
+    private static final char SEPARATOR = '.';
+
+    private final SecretKeySpec key;
+
+    public KeysetCursorSigner(@Value("${app.pagination.cursor-secret:${app.security.secret-key}}") String secret) {
+        this.key = new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), ALGORITHM);
+    }
+
+    public String sign(String cursor) {
+        if (cursor == null) return null;
+        return cursor + SEPARATOR + Base64.getUrlEncoder().withoutPadding().encodeToString(signature(cursor));
+    }
+
+    /**
+     * Returns the cursor of a signed token. Blank tokens (first page) are returned as they are.
+     */
+    public String verify(String token) throws AppObjectInvalidArgumentException {
+        if (token == null || token.isBlank()) return token;
+
+        int separator = token.lastIndexOf(SEPARATOR);
+        if (separator < 0) throw new AppObjectInvalidArgumentException("Cursor", "Invalid cursor");
+        String cursor = token.substring(0, separator);
+        try {
+            byte[] signature = Base64.getUrlDecoder().decode(token.substring(separator + 1));
+            if (!MessageDigest.isEqual(signature, signature(cursor))) {
+                throw new AppObjectInvalidArgumentException("Cursor", "Invalid cursor");
+            }
+        } catch (IllegalArgumentException e) {
+            throw new AppObjectInvalidArgumentException("Cursor", "Invalid cursor");
+        }
+        return cursor;
+    }
+
+    private byte[] signature(String cursor) {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(key);
+            return Arrays.copyOf(mac.doFinal(cursor.getBytes(StandardCharsets.UTF_8)), SIGNATURE_BYTES);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(ALGORITHM + " is not available", e);
+        }
+    }
+}
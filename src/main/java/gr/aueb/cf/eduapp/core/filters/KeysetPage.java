@@ -0,0 +1,13 @@
+package gr.aueb.cf.eduapp.core.filters;
+
+import java.util.List;
+
+/**
+ * A page read with keyset (seek) pagination. {@code nextCursor} is null on the last page.
+ */
+public record KeysetPage<T>(List<T> content, String nextCursor) {
+
+    public boolean hasNext() {
+        return nextCursor != null;
+    }
+}
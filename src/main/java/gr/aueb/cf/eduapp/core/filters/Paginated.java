@@ -4,6 +4,8 @@ import lombok.Builder;
 import lombok.Getter;
 import lombok.Setter;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Slice;
+import org.springframework.lang.Nullable;
 
 import java.util.List;
 
@@ -12,11 +14,13 @@ import java.util.List;
 @Builder
 public class Paginated<T> {
     List<T> data;
-    int currentPage;
+    @Nullable Integer currentPage;      // null in keyset mode, which has no page numbers
     int pageSize;
-    int totalPages;
+    @Nullable Integer totalPages;       // null when totals were not asked for (CountMode.NONE)
     int numberOfElements;
-    long totalElements;
+    @Nullable Long totalElements;
+    boolean hasNext;
+    @Nullable String nextCursor;        // keyset mode only, null on the last page
 
     public static <T> Paginated<T> fromPage(Page<T> page) {
         // Static members are associated with the raw class (Paginated),
@@ -30,6 +34,35 @@ public class Paginated<T> {
                 .totalPages(page.getTotalPages())
                 .numberOfElements(page.getNumberOfElements())
                 .totalElements(page.getTotalElements())
+                .hasNext(page.hasNext())
+                .build();
+    }
+
+    /**
+     * Page read without a count query, with an optional total from elsewhere (e.g. a cached count).
+     */
+    public static <T> Paginated<T> fromSlice(Slice<T> slice, @Nullable Long totalElements) {
+        Integer totalPages = totalElements == null ? null
+                : (int) ((totalElements + slice.getSize() - 1) / slice.getSize());
+
+        return Paginated.<T>builder()
+                .data(slice.getContent())
+                .currentPage(slice.getNumber())
+                .pageSize(slice.getSize())
+                .totalPages(totalPages)
+                .numberOfElements(slice.getNumberOfElements())
+                .totalElements(totalElements)
+                .hasNext(slice.hasNext())
+                .build();
+    }
+
+    public static <T> Paginated<T> fromKeysetPage(KeysetPage<T> page, int pageSize) {
+        return Paginated.<T>builder()
+                .data(page.content())
+                .pageSize(pageSize)
+                .numberOfElements(page.content().size())
+                .nextCursor(page.nextCursor())
+                .hasNext(page.hasNext())
                 .build();
     }
 }
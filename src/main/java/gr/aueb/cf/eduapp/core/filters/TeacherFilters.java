@@ -26,4 +26,8 @@ public class TeacherFilters extends GenericFilters {
     // Optional filter for whether the teacher is active
     @Nullable
     private Boolean active;
+
+    // Optional free-text search, part of the uuid, firstname, lastname, VAT or AMKA
+    @Nullable
+    private String query;
 }
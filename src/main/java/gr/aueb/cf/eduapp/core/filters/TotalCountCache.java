@@ -0,0 +1,47 @@
+package gr.aueb.cf.eduapp.core.filters;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.function.LongSupplier;
+
+/**
+ * Totals of paginated queries for {@link gr.aueb.cf.eduapp.core.enums.CountMode#ESTIMATED}, keyed by
+ * the query and its filters (not the page). A total is counted at most once per ttl, which bounds
+ * how stale the returned totals can be. Published as the "totalCounts" cache metrics.
+ */
+@Component
+public class TotalCountCache {
+
+    private final Cache<String, Long> cache;
+
+    public TotalCountCache(@Value("${app.pagination.count-cache.max-size:1000}") long maxSize,
+                           @Value("${app.pagination.count-cache.ttl:PT1M}") Duration ttl,
+                           MeterRegistry meterRegistry) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "totalCounts");
+    }
+
+    /**
+     * Returns the cached total or counts it. Concurrent misses of the same key run a single count.
+     */
+    public long get(String key, LongSupplier counter) {
+        return cache.get(key, k -> counter.getAsLong());
+    }
+
+    /**
+     * Stores a total known to be exact, e.g. when the last page was read.
+     */
+    public void put(String key, long total) {
+        cache.put(key, total);
+    }
+}
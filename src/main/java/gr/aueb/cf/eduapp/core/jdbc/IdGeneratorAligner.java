@@ -0,0 +1,60 @@
+package gr.aueb.cf.eduapp.core.jdbc;
+
+import gr.aueb.cf.eduapp.model.AbstractEntity;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Moves the pooled id generators past the ids already in their tables. Tables whose rows were
+ * inserted with IDENTITY ids start with generators at 1, which would hand out ids that are taken.
+ * Runs once at startup, before the web server accepts requests, and is a no-op once aligned.
+ * A generator that cannot be aligned fails the startup.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class IdGeneratorAligner implements SmartInitializingSingleton {
+
+    // Generator row (pkColumnValue) -> table whose ids it generates
+    private static final Map<String, String> GENERATED_TABLES = Map.of(
+            "teachers", "teachers",
+            "users", "users",
+            "personal_information", "personal_information");
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        GENERATED_TABLES.forEach((generator, table) -> {
+            try {
+                align(generator, table);
+            } catch (DataAccessException e) {
+                // Left behind, the generator would hand out taken ids, so the application must not start
+                throw new IllegalStateException("Id generator " + generator + " could not be aligned with table " + table, e);
+            }
+        });
+    }
+
+    private void align(String generator, String table) {
+        Long maxId = jdbcTemplate.queryForObject("select max(id) from " + table, Long.class);
+        if (maxId == null) return;
+
+        // Pooled generators may hand out up to one block below the stored value, so stay a block above the max id
+        long nextVal = maxId + 1 + AbstractEntity.ID_ALLOCATION_SIZE;
+        int updated = jdbcTemplate.update("update " + AbstractEntity.ID_TABLE + " set next_val = ? where name = ? and next_val < ?",
+                nextVal, generator, nextVal);
+        if (updated == 0) {
+            Integer rows = jdbcTemplate.queryForObject("select count(*) from " + AbstractEntity.ID_TABLE + " where name = ?",
+                    Integer.class, generator);
+            if (rows != null && rows > 0) return;
+            jdbcTemplate.update("insert into " + AbstractEntity.ID_TABLE + " (name, next_val) values (?, ?)", generator, nextVal);
+        }
+        log.info("Id generator {} moved to {}, past the max id of {}", generator, nextVal, table);
+    }
+}
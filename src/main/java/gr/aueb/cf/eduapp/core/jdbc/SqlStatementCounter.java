@@ -0,0 +1,53 @@
+package gr.aueb.cf.eduapp.core.jdbc;
+
+/**
+ * Counts the SQL statements executed by the current thread, and the time spent in JDBC executing them,
+ * between {@link #start()} and {@link #stop()}. Statements are reported by {@link StatementCountingDataSource};
+ * outside of a start/stop pair nothing is counted.
+ */
+public final class SqlStatementCounter {
+
+    private static final ThreadLocal<Tally> CURRENT = new ThreadLocal<>();
+
+    public record Counts(int statements, long jdbcNanos) {
+
+        public static final Counts NONE = new Counts(0, 0L);
+
+        public long jdbcMillis() {
+            return jdbcNanos / 1_000_000;
+        }
+    }
+
+    private static final class Tally {
+        int statements;
+        long jdbcNanos;
+    }
+
+    private SqlStatementCounter() {
+    }
+
+    public static void start() {
+        CURRENT.set(new Tally());
+    }
+
+    /**
+     * Stops counting on this thread and returns what was counted since {@link #start()}.
+     */
+    public static Counts stop() {
+        Counts counts = current();
+        CURRENT.remove();
+        return counts;
+    }
+
+    public static Counts current() {
+        Tally tally = CURRENT.get();
+        return tally == null ? Counts.NONE : new Counts(tally.statements, tally.jdbcNanos);
+    }
+
+    static void record(long nanos) {
+        Tally tally = CURRENT.get();
+        if (tally == null) return;
+        tally.statements++;
+        tally.jdbcNanos += nanos;
+    }
+}
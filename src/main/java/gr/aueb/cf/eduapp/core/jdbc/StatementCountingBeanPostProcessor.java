@@ -0,0 +1,27 @@
+package gr.aueb.cf.eduapp.core.jdbc;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+
+/**
+ * Wraps the DataSource beans that open connections themselves (the pools) in a
+ * {@link StatementCountingDataSource}. DataSources that only delegate to other beans,
+ * like the read/write routing one, are left alone so that no statement is counted twice.
+ */
+@Component
+public class StatementCountingBeanPostProcessor implements BeanPostProcessor {
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (bean instanceof DataSource dataSource
+                && !(bean instanceof DelegatingDataSource)
+                && !(bean instanceof AbstractRoutingDataSource)) {
+            return new StatementCountingDataSource(dataSource);
+        }
+        return bean;
+    }
+}
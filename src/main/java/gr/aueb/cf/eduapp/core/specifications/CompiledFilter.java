@@ -0,0 +1,47 @@
+package gr.aueb.cf.eduapp.core.specifications;
+
+import jakarta.persistence.Query;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Result of {@link FilterQuery#compile}: the JPQL joins and predicate for the filters that are set,
+ * shared by every request with the same set of filters, and this request's parameter values.
+ *
+ * @param joins      the joins the predicate needs, e.g. {@code " join t.user u"}, or empty
+ * @param predicate  the conjunction of the predicates, without {@code where}, or empty
+ * @param parameters the values of the named parameters of the predicate
+ */
+public record CompiledFilter(String joins, String predicate, Map<String, Object> parameters) {
+
+    public static final CompiledFilter NONE = new CompiledFilter("", "", Map.of());
+
+    /**
+     * The where clause of the predicate and any extra predicates, or an empty string if there are none.
+     */
+    public String where(String... extraPredicates) {
+        String conjunction = Stream.concat(Stream.of(predicate), Stream.of(extraPredicates))
+                .filter(p -> !p.isEmpty())
+                .collect(Collectors.joining(" and "));
+        return conjunction.isEmpty() ? "" : " where " + conjunction;
+    }
+
+    /**
+     * This filter and one more predicate, e.g. candidate ids resolved elsewhere.
+     * The result is not part of the shape cache.
+     */
+    public CompiledFilter and(String extraPredicate, Map<String, Object> extraParameters) {
+        Map<String, Object> allParameters = new HashMap<>(parameters);
+        allParameters.putAll(extraParameters);
+        String conjunction = predicate.isEmpty() ? extraPredicate : predicate + " and " + extraPredicate;
+        return new CompiledFilter(joins, conjunction, allParameters);
+    }
+
+    public <Q extends Query> Q bind(Q query) {
+        parameters.forEach(query::setParameter);
+        return query;
+    }
+}
@@ -0,0 +1,213 @@
+package gr.aueb.cf.eduapp.core.specifications;
+
+import gr.aueb.cf.eduapp.core.filters.GenericFilters;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+/**
+ * Compiles the filters of a {@link GenericFilters} subclass into JPQL.
+ * <p>
+ * Each filter is declared once with the attribute path it applies to. Filters that are not set
+ * (null or blank) produce no predicate at all, and every association is joined at most once, under
+ * the alias it was declared with, whatever the number of filters on it. The joins and predicate are
+ * built once per combination of set filters and cached; since the JPQL text is then identical for
+ * every request with the same combination, Hibernate also reuses its parsed query plan.
+ *
+ * @param <F> the filters type
+ */
+public final class FilterQuery<F extends GenericFilters> {
+
+    public enum Operator {
+        EQUAL,          // path = value
+        LIKE            // case-insensitive "contains" of a string value, in any of the paths
+    }
+
+    private record Field<F>(List<String> paths, Operator operator, Function<F, Object> extractor) {}
+
+    private record Shape(String joins, String predicate) {}
+
+    // Paths of attributes and of sort keys, never taken from the user as is
+    private static final Pattern PATH = Pattern.compile("[A-Za-z_][A-Za-z0-9_]*(\\.[A-Za-z_][A-Za-z0-9_]*)*");
+
+    private final String entity;
+    private final String alias;
+    private final Map<String, String> joinAliases;      // association -> alias, in declaration order
+    private final List<Field<F>> fields;
+    private final Map<Integer, Shape> shapes = new ConcurrentHashMap<>();
+
+    private FilterQuery(String entity, String alias, Map<String, String> joinAliases, List<Field<F>> fields) {
+        this.entity = entity;
+        this.alias = alias;
+        this.joinAliases = joinAliases;
+        this.fields = fields;
+    }
+
+    public static <F extends GenericFilters> Builder<F> builder(String entity, String alias) {
+        return new Builder<>(entity, alias);
+    }
+
+    /**
+     * Compiles the filters that are set. Null filters compile to {@link CompiledFilter#NONE}.
+     */
+    public CompiledFilter compile(F filters) {
+        if (filters == null) return CompiledFilter.NONE;
+
+        int mask = 0;
+        Map<String, Object> parameters = new HashMap<>();
+        for (int i = 0; i < fields.size(); i++) {
+            Field<F> field = fields.get(i);
+            Object value = field.extractor().apply(filters);
+            if (!isSet(value)) continue;
+
+            mask |= 1 << i;
+            parameters.put(parameterName(i), field.operator() == Operator.LIKE
+                    ? "%" + value.toString().trim().toUpperCase() + "%"
+                    : value);
+        }
+        if (mask == 0) return CompiledFilter.NONE;
+
+        Shape shape = shapes.computeIfAbsent(mask, this::buildShape);
+        return new CompiledFilter(shape.joins(), shape.predicate(), parameters);
+    }
+
+    /**
+     * {@code "from Entity alias"}, without joins.
+     */
+    public String from() {
+        return "from " + entity + " " + alias;
+    }
+
+    /**
+     * Inner joins of all the declared associations, for queries that select from them.
+     */
+    public String allJoins() {
+        return joins(joinAliases.keySet());
+    }
+
+    /**
+     * Resolves an attribute path such as {@code "user.lastname"} against the declared join aliases
+     * (e.g. {@code "u.lastname"}), so that sorting reuses the joins as well.
+     * Throws {@link IllegalArgumentException} for anything that is not a plain attribute path.
+     */
+    public String path(String attributePath) {
+        if (attributePath == null || !PATH.matcher(attributePath).matches()) {
+            throw new IllegalArgumentException("Invalid attribute path: " + attributePath);
+        }
+
+        int dot = attributePath.indexOf('.');
+        if (dot > 0) {
+            String joinAlias = joinAliases.get(attributePath.substring(0, dot));
+            if (joinAlias != null) return joinAlias + attributePath.substring(dot);
+        }
+        return alias + "." + attributePath;
+    }
+
+    public String alias() {
+        return alias;
+    }
+
+    int cachedShapes() {
+        return shapes.size();
+    }
+
+    private Shape buildShape(int mask) {
+        Set<String> associations = new LinkedHashSet<>();
+        StringJoiner predicate = new StringJoiner(" and ");
+
+        for (int i = 0; i < fields.size(); i++) {
+            if ((mask & (1 << i)) == 0) continue;
+
+            Field<F> field = fields.get(i);
+            StringJoiner alternatives = new StringJoiner(" or ", field.paths().size() > 1 ? "(" : "", field.paths().size() > 1 ? ")" : "");
+            for (String attributePath : field.paths()) {
+                int dot = attributePath.indexOf('.');
+                if (dot > 0 && joinAliases.containsKey(attributePath.substring(0, dot))) {
+                    associations.add(attributePath.substring(0, dot));
+                }
+
+                String path = path(attributePath);
+                alternatives.add(switch (field.operator()) {
+                    case EQUAL -> path + " = :" + parameterName(i);
+                    case LIKE -> "upper(" + path + ") like :" + parameterName(i);
+                });
+            }
+            predicate.add(alternatives.toString());
+        }
+        return new Shape(joins(associations), predicate.toString());
+    }
+
+    private String joins(Collection<String> associations) {
+        StringBuilder joins = new StringBuilder();
+        // Declaration order, so that the same set of joins always gives the same text
+        for (Map.Entry<String, String> join : joinAliases.entrySet()) {
+            if (associations.contains(join.getKey())) {
+                joins.append(" join ").append(alias).append('.').append(join.getKey())
+                        .append(' ').append(join.getValue());
+            }
+        }
+        return joins.toString();
+    }
+
+    private static boolean isSet(Object value) {
+        if (value == null) return false;
+        return !(value instanceof String s) || !s.isBlank();
+    }
+
+    private static String parameterName(int index) {
+        return "f" + index;
+    }
+
+    public static final class Builder<F extends GenericFilters> {
+        private final String entity;
+        private final String alias;
+        private final Map<String, String> joinAliases = new LinkedHashMap<>();
+        private final List<Field<F>> fields = new ArrayList<>();
+
+        private Builder(String entity, String alias) {
+            this.entity = entity;
+            this.alias = alias;
+        }
+
+        /**
+         * Declares an association that filters and sort keys may go through, joined at most once.
+         */
+        public Builder<F> join(String association, String joinAlias) {
+            joinAliases.put(association, joinAlias);
+            return this;
+        }
+
+        public Builder<F> equal(String path, Function<F, Object> extractor) {
+            return field(List.of(path), Operator.EQUAL, extractor);
+        }
+
+        public Builder<F> like(String path, Function<F, Object> extractor) {
+            return field(List.of(path), Operator.LIKE, extractor);
+        }
+
+        /**
+         * One value matched (case-insensitive "contains") against several attributes, e.g. a free-text search.
+         */
+        public Builder<F> likeAny(List<String> paths, Function<F, Object> extractor) {
+            return field(List.copyOf(paths), Operator.LIKE, extractor);
+        }
+
+        public FilterQuery<F> build() {
+            return new FilterQuery<>(entity, alias, Collections.unmodifiableMap(new LinkedHashMap<>(joinAliases)),
+                    List.copyOf(fields));
+        }
+
+        private Builder<F> field(List<String> paths, Operator operator, Function<F, Object> extractor) {
+            if (fields.size() == Integer.SIZE - 1) {
+                throw new IllegalStateException("At most " + (Integer.SIZE - 1) + " filters are supported");
+            }
+            for (String path : paths) {
+                if (!PATH.matcher(path).matches()) throw new IllegalArgumentException("Invalid attribute path: " + path);
+            }
+            fields.add(new Field<>(paths, operator, extractor));
+            return this;
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package gr.aueb.cf.eduapp.core.specifications;
+
+import gr.aueb.cf.eduapp.core.filters.TeacherFilters;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The filters of {@link TeacherFilters} as a compiled {@link FilterQuery} over Teacher.
+ */
+public class TeacherFilterQuery {
+
+    // Private constructor to prevent instantiation, as this is a utility class
+    private TeacherFilterQuery() {}
+
+    // The only attributes pages can be sorted on. The sort key ends up in the cursor handed to clients,
+    // so nothing else (e.g. user.password) may ever be selected through it
+    public static final Set<String> SORTABLE = Set.of("id", "uuid", "isActive",
+            "user.firstname", "user.lastname", "user.vat", "personalInfo.amka");
+
+    public static final FilterQuery<TeacherFilters> INSTANCE = FilterQuery.<TeacherFilters>builder("Teacher", "t")
+            .join("user", "u")
+            .join("personalInfo", "p")
+            .like("uuid", TeacherFilters::getUuid)                      // partial, case-insensitive
+            .equal("user.vat", TeacherFilters::getUserVat)
+            .equal("personalInfo.amka", TeacherFilters::getUserAmka)
+            .equal("user.isActive", TeacherFilters::getActive)
+            .likeAny(List.of("uuid", "user.firstname", "user.lastname", "user.vat", "personalInfo.amka"),
+                    TeacherFilters::getQuery)
+            .build();
+}
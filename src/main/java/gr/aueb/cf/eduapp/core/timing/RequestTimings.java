@@ -0,0 +1,97 @@
+package gr.aueb.cf.eduapp.core.timing;
+
+import gr.aueb.cf.eduapp.core.jdbc.SqlStatementCounter;
+
+import java.util.Locale;
+import java.util.StringJoiner;
+import java.util.function.Supplier;
+
+/**
+ * Time spent by the current request in each {@link Phase}, collected between {@link #start()} and
+ * {@link #stop(long, SqlStatementCounter.Counts)} on the request thread. Recording outside of a request
+ * (e.g. background jobs) is a no-op. The DB phase and the statement count are not recorded here but
+ * taken from the request's {@link SqlStatementCounter}, the single count of the SQL statements.
+ * Phases may overlap: auth and mapping include the DB time of the lookups they trigger.
+ */
+public final class RequestTimings {
+
+    public enum Phase {
+        AUTH("auth"),
+        DB("db"),
+        MAPPING("mapping"),
+        SERIALIZATION("serialization");
+
+        private final String metricName;
+
+        Phase(String metricName) {
+            this.metricName = metricName;
+        }
+    }
+
+    private static final ThreadLocal<Tally> CURRENT = new ThreadLocal<>();
+
+    private static final class Tally {
+        final long[] nanos = new long[Phase.values().length];
+    }
+
+    /**
+     * Phase durations of a finished request.
+     */
+    public record Timings(long totalNanos, long[] phaseNanos, int statements) {
+
+        public double millis(Phase phase) {
+            return phaseNanos[phase.ordinal()] / 1_000_000.0;
+        }
+
+        public double totalMillis() {
+            return totalNanos / 1_000_000.0;
+        }
+
+        /**
+         * Value of the {@code Server-Timing} response header, durations in milliseconds.
+         */
+        public String toHeader() {
+            StringJoiner header = new StringJoiner(", ");
+            for (Phase phase : Phase.values()) {
+                String metric = phase.metricName + ";dur=" + format(millis(phase));
+                if (phase == Phase.DB) metric += ";desc=\"" + statements + " statements\"";
+                header.add(metric);
+            }
+            header.add("total;dur=" + format(totalMillis()));
+            return header.toString();
+        }
+
+        private static String format(double millis) {
+            return String.format(Locale.ROOT, "%.2f", millis);
+        }
+    }
+
+    private RequestTimings() {
+    }
+
+    public static void start() {
+        CURRENT.set(new Tally());
+    }
+
+    public static Timings stop(long totalNanos, SqlStatementCounter.Counts sql) {
+        Tally tally = CURRENT.get();
+        CURRENT.remove();
+        long[] nanos = tally == null ? new long[Phase.values().length] : tally.nanos;
+        nanos[Phase.DB.ordinal()] = sql.jdbcNanos();
+        return new Timings(totalNanos, nanos, sql.statements());
+    }
+
+    public static void add(Phase phase, long nanos) {
+        Tally tally = CURRENT.get();
+        if (tally != null) tally.nanos[phase.ordinal()] += nanos;
+    }
+
+    public static <T> T time(Phase phase, Supplier<T> action) {
+        long start = System.nanoTime();
+        try {
+            return action.get();
+        } finally {
+            add(phase, System.nanoTime() - start);
+        }
+    }
+}
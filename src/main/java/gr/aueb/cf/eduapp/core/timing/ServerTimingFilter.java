@@ -0,0 +1,98 @@
+package gr.aueb.cf.eduapp.core.timing;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import gr.aueb.cf.eduapp.core.MDCLoggingFilter;
+import gr.aueb.cf.eduapp.core.jdbc.SqlStatementCounter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Outermost filter, so that the security filters are timed too. When enabled ({@code app.server-timing.enabled},
+ * off by default), requests sent with an {@code X-Server-Timing} header get the phase durations back as a
+ * {@code Server-Timing} header; their body is buffered, since the header can only be set once serialization
+ * is over. Streamed bodies (CSV/NDJSON exports and imports) are never buffered and get no header.
+ * A sample of the requests is logged with the same durations. The DB phase and the statement count
+ * come from the count {@link MDCLoggingFilter} keeps.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@Slf4j
+public class ServerTimingFilter extends OncePerRequestFilter {
+
+    public static final String REQUEST_HEADER = "X-Server-Timing";
+    public static final String RESPONSE_HEADER = "Server-Timing";
+    private static final List<MediaType> STREAMED = List.of(MediaType.parseMediaType("text/csv"), MediaType.APPLICATION_NDJSON);
+
+    private final boolean headerEnabled;
+    private final double logSampleRate;
+
+    public ServerTimingFilter(@Value("${app.server-timing.enabled:false}") boolean headerEnabled,
+                              @Value("${app.server-timing.log-sample-rate:0.01}") double logSampleRate) {
+        this.headerEnabled = headerEnabled;
+        this.logSampleRate = logSampleRate;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        ContentCachingResponseWrapper buffered = headerEnabled && request.getHeader(REQUEST_HEADER) != null && !isStreamed(request)
+                ? new ContentCachingResponseWrapper(response)
+                : null;
+
+        long start = System.nanoTime();
+        RequestTimings.start();
+        try {
+            filterChain.doFilter(request, buffered != null ? buffered : response);
+        } finally {
+            Object sql = request.getAttribute(MDCLoggingFilter.SQL_COUNTS_ATTRIBUTE);
+            RequestTimings.Timings timings = RequestTimings.stop(System.nanoTime() - start,
+                    sql instanceof SqlStatementCounter.Counts counts ? counts : SqlStatementCounter.Counts.NONE);
+            if (buffered != null) {
+                buffered.setHeader(RESPONSE_HEADER, timings.toHeader());
+                buffered.copyBodyToResponse();
+            }
+            if (logSampleRate > 0 && ThreadLocalRandom.current().nextDouble() < logSampleRate) {
+                log.info("timing method={} uri={} status={} total_ms={} auth_ms={} db_ms={} sql_statements={} mapping_ms={} serialization_ms={}",
+                        request.getMethod(), request.getRequestURI(), response.getStatus(),
+                        Math.round(timings.totalMillis()),
+                        Math.round(timings.millis(RequestTimings.Phase.AUTH)),
+                        Math.round(timings.millis(RequestTimings.Phase.DB)),
+                        timings.statements(),
+                        Math.round(timings.millis(RequestTimings.Phase.MAPPING)),
+                        Math.round(timings.millis(RequestTimings.Phase.SERIALIZATION)));
+            }
+        }
+    }
+
+    // Whatever is sent or asked for as CSV/NDJSON is streamed, and buffering it would hold it all in memory
+    private static boolean isStreamed(HttpServletRequest request) {
+        return isStreamed(request.getContentType()) || isStreamed(request.getHeader(HttpHeaders.ACCEPT));
+    }
+
+    private static boolean isStreamed(String mediaTypes) {
+        if (mediaTypes == null || mediaTypes.isBlank()) return false;
+        try {
+            for (MediaType mediaType : MediaType.parseMediaTypes(mediaTypes)) {
+                if (STREAMED.stream().anyMatch(streamed -> streamed.equalsTypeAndSubtype(mediaType))) return true;
+            }
+        } catch (InvalidMediaTypeException e) {
+            return false;
+        }
+        return false;
+    }
+}
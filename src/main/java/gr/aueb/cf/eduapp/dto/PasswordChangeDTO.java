@@ -0,0 +1,16 @@
+package gr.aueb.cf.eduapp.dto;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Pattern;
+import lombok.Builder;
+
+@Builder
+public record PasswordChangeDTO(
+        @NotEmpty(message = "Old password is required")
+        String oldPassword,
+
+        @NotEmpty(message = "New password is required")
+        @Pattern(regexp = "^(?=.*?[a-z])(?=.*?[A-Z])(?=.*?\\d)(?=.*?[@#$!%&*]).{8,}$",
+                message = "Invalid Password")
+        String newPassword
+) {}
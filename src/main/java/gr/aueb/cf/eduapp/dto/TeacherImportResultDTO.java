@@ -0,0 +1,19 @@
+package gr.aueb.cf.eduapp.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * The outcome of one row of a bulk teacher import: the uuid of the created teacher,
+ * or the code and message of the error (the codes of the single registration where they apply).
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record TeacherImportResultDTO(long line, String status, String uuid, String code, String message) {
+
+    public static TeacherImportResultDTO created(long line, String uuid) {
+        return new TeacherImportResultDTO(line, "CREATED", uuid, null, null);
+    }
+
+    public static TeacherImportResultDTO failed(long line, String code, String message) {
+        return new TeacherImportResultDTO(line, "FAILED", null, code, message);
+    }
+}
@@ -1,5 +1,6 @@
 package gr.aueb.cf.eduapp.dto;
 
+import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotNull;
 import lombok.Builder;
 
@@ -9,8 +10,10 @@ public record TeacherInsertDTO(
         Boolean isActive,
 
         @NotNull(message = "User details are required")
+        @Valid
         UserInsertDTO userInsertDTO,
 
         @NotNull(message = "Personal Info is required")
+        @Valid
         PersonalInfoInsertDTO personalInfoInsertDTO
 ) {}
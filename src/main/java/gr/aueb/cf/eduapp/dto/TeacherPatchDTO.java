@@ -0,0 +1,41 @@
+package gr.aueb.cf.eduapp.dto;
+
+import gr.aueb.cf.eduapp.core.enums.GenderType;
+import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.Size;
+import lombok.Builder;
+
+import java.time.LocalDate;
+
+/**
+ * Partial update of a teacher: null fields are left as they are.
+ * Username, role and password are not patchable (see PUT /teachers/{uuid} and the password endpoint).
+ */
+@Builder
+public record TeacherPatchDTO(
+        Boolean isActive,
+        @Size(min = 1, message = "First name must not be empty")
+        String firstname,
+        @Size(min = 1, message = "Last name must not be empty")
+        String lastname,
+        @Pattern(regexp = "\\d{9}", message = "VAT must be a 9-digit number")
+        String vat,
+        @Size(min = 1, message = "Father's name must not be empty")
+        String fatherName,
+        @Size(min = 1, message = "Father's last name must not be empty")
+        String fatherLastname,
+        @Size(min = 1, message = "Mother's name must not be empty")
+        String motherName,
+        @Size(min = 1, message = "Mother's last name must not be empty")
+        String motherLastname,
+        LocalDate dateOfBirth,
+        GenderType gender,
+        @Pattern(regexp = "\\d{11}", message = "AMKA must be an 11-digit number")
+        String amka,
+        @Size(min = 1, message = "Identity number must not be empty")
+        String identityNumber,
+        @Size(min = 1, message = "Place of birth must not be empty")
+        String placeOfBirth,
+        @Size(min = 1, message = "Municipality of registration must not be empty")
+        String municipalityOfRegistration
+) {}
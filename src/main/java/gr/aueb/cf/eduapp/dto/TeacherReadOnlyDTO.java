@@ -1,6 +1,9 @@
 package gr.aueb.cf.eduapp.dto;
 
-import lombok.*;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.Builder;
+
+import java.time.LocalDateTime;
 
 @Builder
 public record TeacherReadOnlyDTO(
@@ -8,4 +11,7 @@ public record TeacherReadOnlyDTO(
         String uuid,
         Boolean isActive,
         UserReadOnlyDTO userReadOnlyDTO,
-        PersonalInfoReadOnlyDTO personalInfoReadOnlyDTO) {}
+        PersonalInfoReadOnlyDTO personalInfoReadOnlyDTO,
+        @JsonIgnore Long version,               // sent as the ETag header
+        @JsonIgnore LocalDateTime updatedAt     // sent as the Last-Modified header
+) implements VersionedDTO {}
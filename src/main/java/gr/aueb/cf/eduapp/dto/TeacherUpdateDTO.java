@@ -1,5 +1,6 @@
 package gr.aueb.cf.eduapp.dto;
 
+import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotNull;
 import lombok.Builder;
 
@@ -15,8 +16,10 @@ public record TeacherUpdateDTO(
         String uuid,
 
         @NotNull(message = "User details are required")
+        @Valid
         UserUpdateDTO userUpdateDTO,
 
         @NotNull(message = "Personal Info is required")
+        @Valid
         PersonalInfoUpdateDTO personalInfoUpdateDTO
 ) {}
@@ -24,10 +24,6 @@ public record UserUpdateDTO(
         @Email(message = "Invalid username")
         String username,
 
-        @Pattern(regexp = "^(?=.*?[a-z])(?=.*?[A-Z])(?=.*?\\d)(?=.*?[@#$!%&*]).{8,}$",
-                message = "Invalid Password")
-        String password,
-
         @NotEmpty(message = "VAT number is required")
         @Pattern(regexp = "\\d{9}", message = "VAT must be a 9-digit number")
         String vat,
@@ -44,12 +40,12 @@ public record UserUpdateDTO(
         @NotEmpty(message = "Mother's last name is required")
         String motherLastname,
 
-        @NotEmpty(message = "Date of birth is required")
+        @NotNull(message = "Date of birth is required")
         LocalDate dateOfBirth,
 
-        @NotEmpty(message = "Gender is required")
+        @NotNull(message = "Gender is required")
         GenderType gender,
 
-        @NotEmpty(message = "Role is required")
+        @NotNull(message = "Role is required")
         Role role
 ) {}
@@ -0,0 +1,13 @@
+package gr.aueb.cf.eduapp.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * Read-only DTOs of versioned entities, whose version and last update back conditional requests.
+ */
+public interface VersionedDTO {
+
+    Long version();
+
+    LocalDateTime updatedAt();
+}
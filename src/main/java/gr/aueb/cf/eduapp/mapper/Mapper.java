@@ -1,5 +1,6 @@
 package gr.aueb.cf.eduapp.mapper;
 
+import gr.aueb.cf.eduapp.core.timing.RequestTimings;
 import gr.aueb.cf.eduapp.dto.*;
 import gr.aueb.cf.eduapp.model.PersonalInfo;
 import gr.aueb.cf.eduapp.model.Teacher;
@@ -14,7 +15,12 @@ public class Mapper {
 
     private final PasswordEncoder passwordEncoder;
 
+    // Timed as the mapping phase of the request, including any lazy load it triggers
     public TeacherReadOnlyDTO mapToTeacherReadOnlyDTO(Teacher teacher) {
+        return RequestTimings.time(RequestTimings.Phase.MAPPING, () -> toTeacherReadOnlyDTO(teacher));
+    }
+
+    private TeacherReadOnlyDTO toTeacherReadOnlyDTO(Teacher teacher) {
         UserReadOnlyDTO userReadOnlyDTO = new UserReadOnlyDTO(teacher.getUser().getFirstname(),
                 teacher.getUser().getLastname(), teacher.getUser().getVat());
 
@@ -22,11 +28,17 @@ public class Mapper {
                 teacher.getPersonalInfo().getIdentityNumber());
 
         return new TeacherReadOnlyDTO(teacher.getId(), teacher.getUuid(),
-                teacher.getIsActive(), userReadOnlyDTO, personalInfoReadOnlyDTO );
+                teacher.getIsActive(), userReadOnlyDTO, personalInfoReadOnlyDTO,
+                teacher.getVersion(), teacher.getUpdatedAt());
     }
 
 
     public Teacher mapToTeacherEntity(TeacherInsertDTO dto) {
+        return mapToTeacherEntity(dto, passwordEncoder.encode(dto.userInsertDTO().password()));
+    }
+
+    // For passwords already hashed by the caller, e.g. in parallel by the bulk import
+    public Teacher mapToTeacherEntity(TeacherInsertDTO dto, String encodedPassword) {
         Teacher teacher = new Teacher();
         teacher.setIsActive(dto.isActive());
 
@@ -35,7 +47,7 @@ public class Mapper {
         user.setFirstname(userDTO.firstname());
         user.setLastname(userDTO.lastname());
         user.setUsername(userDTO.username());
-        user.setPassword(passwordEncoder.encode(userDTO.password()));
+        user.setPassword(encodedPassword);
         user.setVat(userDTO.vat());
         user.setFatherName(userDTO.fatherName());
         user.setFatherLastname(userDTO.fatherLastname());
@@ -71,7 +83,7 @@ public class Mapper {
         user.setFirstname(userDTO.firstname());
         user.setLastname(userDTO.lastname());
         user.setUsername(userDTO.username());
-        user.setPassword(passwordEncoder.encode(userDTO.password()));
+        // The password is not part of an update, the service keeps the stored hash
         user.setVat(userDTO.vat());
         user.setFatherName(userDTO.fatherName());
         user.setFatherLastname(userDTO.fatherLastname());
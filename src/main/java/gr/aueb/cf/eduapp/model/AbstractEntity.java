@@ -24,6 +24,11 @@ import java.time.LocalDateTime;
 @EntityListeners(AuditingEntityListener.class)
 public abstract class AbstractEntity implements Serializable {
 
+    // Table of the pooled id generators. Unlike IDENTITY, ids are known before the insert,
+    // so Hibernate can batch the inserts, and each entity fetches a block of ids per round trip.
+    public static final String ID_TABLE = "id_generators";
+    public static final int ID_ALLOCATION_SIZE = 50;
+
     @CreatedDate
     @Column(name = "created_at", nullable = false, updatable = false)
     private LocalDateTime createdAt;
@@ -2,23 +2,32 @@ package gr.aueb.cf.eduapp.model;
 
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.DynamicUpdate;
 
 @Entity
+@DynamicUpdate          // updates write the changed columns only
 @AllArgsConstructor
 @NoArgsConstructor
 @Getter
 @Setter
 @Builder
-@Table(name = "personal_information")
+@Table(name = "personal_information", uniqueConstraints = {
+        @UniqueConstraint(name = PersonalInfo.UK_AMKA, columnNames = "amka"),
+        @UniqueConstraint(name = PersonalInfo.UK_IDENTITY_NUMBER, columnNames = "identity_number")
+})
 public class PersonalInfo extends AbstractEntity {
+
+    public static final String UK_AMKA = "uk_personal_information_amka";
+    public static final String UK_IDENTITY_NUMBER = "uk_personal_information_identity_number";
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "personal_information_ids")
+    @TableGenerator(name = "personal_information_ids", table = ID_TABLE, pkColumnName = "name", valueColumnName = "next_val",
+            pkColumnValue = "personal_information", allocationSize = ID_ALLOCATION_SIZE)   // pooled, inserts can be batched
     private Long id;
 
-    @Column(unique = true)
     private String amka;
 
-    @Column(unique = true)
     private String identityNumber;
     private String placeOfBirth;
     private String municipalityOfRegistration;
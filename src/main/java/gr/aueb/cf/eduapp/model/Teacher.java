@@ -3,10 +3,12 @@ package gr.aueb.cf.eduapp.model;
 import jakarta.persistence.*;
 import lombok.*;
 import org.hibernate.annotations.ColumnDefault;
+import org.hibernate.annotations.DynamicUpdate;
 
 import java.util.UUID;
 
 @Entity
+@DynamicUpdate          // updates write the changed columns only
 @AllArgsConstructor
 @NoArgsConstructor
 @Getter
@@ -15,7 +17,9 @@ import java.util.UUID;
 @Table(name = "teachers")
 public class Teacher extends AbstractEntity {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "teacher_ids")
+    @TableGenerator(name = "teacher_ids", table = ID_TABLE, pkColumnName = "name", valueColumnName = "next_val",
+            pkColumnValue = "teachers", allocationSize = ID_ALLOCATION_SIZE)   // pooled, inserts can be batched
     private Long id;
 
     @Column(unique = true)
@@ -24,6 +28,10 @@ public class Teacher extends AbstractEntity {
     @ColumnDefault("true")  // creates default value on the database
     private Boolean isActive;
 
+    @Version                // optimistic locking, also the ETag of the teacher
+    @ColumnDefault("0")
+    private Long version;
+
     @OneToOne(cascade = CascadeType.ALL)  // inserting userInsertDTO will insert teacher and vice versa (on service we dont have to save both)
     @JoinColumn(name = "user_id")
     private User user;
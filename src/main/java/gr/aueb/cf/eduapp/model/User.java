@@ -8,6 +8,7 @@ import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 import org.hibernate.annotations.ColumnDefault;
+import org.hibernate.annotations.DynamicUpdate;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -17,17 +18,27 @@ import java.util.Collection;
 import java.util.List;
 
 @Entity
+@DynamicUpdate          // updates write the changed columns only
 @NoArgsConstructor
 @AllArgsConstructor
 @Getter
 @Setter
-@Table(name = "users")
+@Table(name = "users", uniqueConstraints = {
+        @UniqueConstraint(name = User.UK_USERNAME, columnNames = "username"),
+        @UniqueConstraint(name = User.UK_VAT, columnNames = "vat")
+})
 public class User extends AbstractEntity implements UserDetails { // PRINCIPAL
+
+    // Named, so that a violation can be told apart (see TeacherService#saveTeacher)
+    public static final String UK_USERNAME = "uk_users_username";
+    public static final String UK_VAT = "uk_users_vat";
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "user_ids")
+    @TableGenerator(name = "user_ids", table = ID_TABLE, pkColumnName = "name", valueColumnName = "next_val",
+            pkColumnValue = "users", allocationSize = ID_ALLOCATION_SIZE)   // pooled, inserts can be batched
     private Long id;
 
-    @Column(unique = true)
     private String username;
     private String password;
 
@@ -37,7 +48,7 @@ public class User extends AbstractEntity implements UserDetails { // PRINCIPAL
     @Column(nullable = false)
     private String lastname;
 
-    @Column(nullable = false, unique = true)
+    @Column(nullable = false)
     private String vat;
 
     private String fatherName;
@@ -56,10 +67,16 @@ public class User extends AbstractEntity implements UserDetails { // PRINCIPAL
     @Column(name = "is_active")
     private Boolean isActive;
 
-    @OneToOne(mappedBy = "user")
+    // Bumped whenever tokens issued so far must stop being accepted (role change, deactivation)
+    @ColumnDefault("0")
+    @Column(name = "token_epoch")
+    private Integer tokenEpoch;
+
+    // Lazy only thanks to bytecode enhancement, Hibernate cannot proxy the non-owning side
+    @OneToOne(mappedBy = "user", fetch = FetchType.LAZY)
     private Employee employee;
 
-    @OneToOne(mappedBy = "user")
+    @OneToOne(mappedBy = "user", fetch = FetchType.LAZY)
     private Teacher teacher;
 
     public boolean isEmployee() {
@@ -74,6 +91,10 @@ public class User extends AbstractEntity implements UserDetails { // PRINCIPAL
         return firstname + " " + lastname;
     }
 
+    public int getCurrentTokenEpoch() {
+        return tokenEpoch == null ? 0 : tokenEpoch;
+    }
+
     @Override
     public Collection<? extends GrantedAuthority> getAuthorities() {
         return List.of(new SimpleGrantedAuthority(role.name()));
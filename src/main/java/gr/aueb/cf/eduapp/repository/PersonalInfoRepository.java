@@ -4,12 +4,18 @@ import gr.aueb.cf.eduapp.model.PersonalInfo;
 import gr.aueb.cf.eduapp.model.User;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Query;
 
 import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface PersonalInfoRepository extends JpaRepository<PersonalInfo, Long>,
         JpaSpecificationExecutor<PersonalInfo> {
 
     Optional<PersonalInfo> findByAmka(String amka);
     Optional<User> findByIdentityNumber(String identityNumber);
+
+    // (amka, identityNumber) of every personal info, for the registration key filters
+    @Query("select p.amka, p.identityNumber from PersonalInfo p")
+    Stream<Object[]> streamUniqueKeys();
 }
@@ -3,15 +3,40 @@ package gr.aueb.cf.eduapp.repository;
 import gr.aueb.cf.eduapp.model.Teacher;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 public interface TeacherRepository extends JpaRepository<Teacher, Long>,
-        JpaSpecificationExecutor<Teacher> {
+        JpaSpecificationExecutor<Teacher>, TeacherRepositoryCustom {
 
     // UserId by convention looks for the @Id field of User entity since
     // we have a @OneToOne relation
     Optional<Teacher> findByUserId(Long id);
 
     Optional<Teacher> findByUuid(String uuid);
+
+    // The teacher with its user and personal info in a single statement, as managed entities to be modified
+    @Query("select t from Teacher t join fetch t.user join fetch t.personalInfo where t.uuid = :uuid")
+    Optional<Teacher> findAggregateByUuid(@Param("uuid") String uuid);
+
+    // The unique keys of a new teacher that are already taken, as AppObjectAlreadyExists codes, in one round trip
+    @Query("select 'VAT' from User u where u.vat = :vat " +
+            "union all select 'AMKA' from PersonalInfo p where p.amka = :amka " +
+            "union all select 'Username' from User u where u.username = :username " +
+            "union all select 'IdentityNumber' from PersonalInfo p where p.identityNumber = :identityNumber")
+    List<String> findTakenUniqueKeys(@Param("vat") String vat, @Param("amka") String amka,
+                                     @Param("username") String username, @Param("identityNumber") String identityNumber);
+
+    // The same for a batch of new teachers, as (code, taken value) pairs
+    @Query("select 'VAT', u.vat from User u where u.vat in :vats " +
+            "union all select 'AMKA', p.amka from PersonalInfo p where p.amka in :amkas " +
+            "union all select 'Username', u.username from User u where u.username in :usernames " +
+            "union all select 'IdentityNumber', p.identityNumber from PersonalInfo p where p.identityNumber in :identityNumbers")
+    List<Object[]> findTakenUniqueKeysIn(@Param("vats") Collection<String> vats, @Param("amkas") Collection<String> amkas,
+                                         @Param("usernames") Collection<String> usernames,
+                                         @Param("identityNumbers") Collection<String> identityNumbers);
 }
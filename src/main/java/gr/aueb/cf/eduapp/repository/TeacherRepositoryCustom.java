@@ -0,0 +1,56 @@
+package gr.aueb.cf.eduapp.repository;
+
+import gr.aueb.cf.eduapp.core.filters.KeysetCursor;
+import gr.aueb.cf.eduapp.core.filters.KeysetPage;
+import gr.aueb.cf.eduapp.core.specifications.CompiledFilter;
+import gr.aueb.cf.eduapp.core.specifications.TeacherFilterQuery;
+import gr.aueb.cf.eduapp.dto.TeacherReadOnlyDTO;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+
+import java.util.stream.Stream;
+
+/**
+ * Read queries of teachers that select straight into DTOs instead of loading entities.
+ * Filters are compiled with {@link TeacherFilterQuery}; pass {@link CompiledFilter#NONE} for none.
+ */
+public interface TeacherRepositoryCustom {
+
+    /**
+     * Returns a page of teachers as read-only DTOs, selecting only the columns the DTO needs
+     * in one statement (plus the count query of the page).
+     */
+    Page<TeacherReadOnlyDTO> findAllReadOnly(CompiledFilter filter, Pageable pageable);
+
+    /**
+     * Same as {@link #findAllReadOnly(CompiledFilter, Pageable)} without the count query:
+     * one extra row is read to tell whether there is a next page.
+     */
+    Slice<TeacherReadOnlyDTO> findSliceReadOnly(CompiledFilter filter, Pageable pageable);
+
+    long countReadOnly(CompiledFilter filter);
+
+    /**
+     * All teachers as read-only DTOs, read in fetch-size chunks. Must be consumed and closed
+     * inside a transaction.
+     */
+    Stream<TeacherReadOnlyDTO> streamAllReadOnly();
+
+    /**
+     * The teachers matching the filter, in the given order, read in fetch-size chunks from
+     * one forward-only cursor. Must be consumed and closed inside a transaction.
+     * Throws {@link IllegalArgumentException} if the sort is not on an attribute of Teacher.
+     */
+    Stream<TeacherReadOnlyDTO> streamReadOnly(CompiledFilter filter, Sort sort);
+
+    /**
+     * Keyset (seek) variant: returns the {@code size} teachers that follow {@code after} in the
+     * order of {@code sortBy} and id, without an OFFSET or a count query.
+     * Throws {@link IllegalArgumentException} if {@code sortBy} is not an attribute of Teacher
+     * or the cursor value doesn't match its type.
+     */
+    KeysetPage<TeacherReadOnlyDTO> findAllReadOnly(CompiledFilter filter, String sortBy,
+                                                   Sort.Direction direction, KeysetCursor after, int size);
+}
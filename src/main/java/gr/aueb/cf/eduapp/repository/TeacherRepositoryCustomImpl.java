@@ -0,0 +1,199 @@
+package gr.aueb.cf.eduapp.repository;
+
+import gr.aueb.cf.eduapp.core.filters.KeysetCursor;
+import gr.aueb.cf.eduapp.core.filters.KeysetPage;
+import gr.aueb.cf.eduapp.core.filters.TeacherFilters;
+import gr.aueb.cf.eduapp.core.specifications.CompiledFilter;
+import gr.aueb.cf.eduapp.core.specifications.FilterQuery;
+import gr.aueb.cf.eduapp.core.specifications.TeacherFilterQuery;
+import gr.aueb.cf.eduapp.core.timing.RequestTimings;
+import gr.aueb.cf.eduapp.dto.PersonalInfoReadOnlyDTO;
+import gr.aueb.cf.eduapp.dto.TeacherReadOnlyDTO;
+import gr.aueb.cf.eduapp.dto.UserReadOnlyDTO;
+import gr.aueb.cf.eduapp.model.Teacher;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.metamodel.Attribute;
+import jakarta.persistence.metamodel.ManagedType;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.support.PageableExecutionUtils;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+public class TeacherRepositoryCustomImpl implements TeacherRepositoryCustom {
+
+    private static final FilterQuery<TeacherFilters> QUERY = TeacherFilterQuery.INSTANCE;
+    private static final String ID = "id";
+    private static final int SORT_KEY_INDEX = 10;   // after the columns of the DTO
+    private static final int STREAM_FETCH_SIZE = 1000;     // MySQL honours it only with useCursorFetch (application.properties)
+
+    // Inner joins in the same statement, instead of the per-row fetches of the EAGER associations
+    private static final String SELECT_READ_ONLY = Stream.of(ID, "uuid", "isActive",
+                    "user.firstname", "user.lastname", "user.vat",
+                    "personalInfo.amka", "personalInfo.identityNumber", "version", "updatedAt")
+            .map(QUERY::path)
+            .collect(Collectors.joining(", ", "select ", ""));
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public Page<TeacherReadOnlyDTO> findAllReadOnly(CompiledFilter filter, Pageable pageable) {
+        List<TeacherReadOnlyDTO> content = findReadOnly(filter, pageable, 0);
+
+        // The count query is skipped when the page itself tells the total (e.g. last page)
+        return PageableExecutionUtils.getPage(content, pageable, () -> countReadOnly(filter));
+    }
+
+    @Override
+    public Slice<TeacherReadOnlyDTO> findSliceReadOnly(CompiledFilter filter, Pageable pageable) {
+        List<TeacherReadOnlyDTO> content = findReadOnly(filter, pageable, 1);
+        boolean hasNext = pageable.isPaged() && content.size() > pageable.getPageSize();
+        if (hasNext) content = content.subList(0, pageable.getPageSize());
+        return new SliceImpl<>(content, pageable, hasNext);
+    }
+
+    @Override
+    public long countReadOnly(CompiledFilter filter) {
+        // Only the joins the filters need
+        String jpql = "select count(" + QUERY.alias() + ") " + QUERY.from() + filter.joins() + filter.where();
+        return filter.bind(entityManager.createQuery(jpql, Long.class)).getSingleResult();
+    }
+
+    @Override
+    public Stream<TeacherReadOnlyDTO> streamAllReadOnly() {
+        return streamReadOnly(CompiledFilter.NONE, Sort.unsorted());
+    }
+
+    @Override
+    public Stream<TeacherReadOnlyDTO> streamReadOnly(CompiledFilter filter, Sort sort) {
+        String jpql = SELECT_READ_ONLY + " " + QUERY.from() + QUERY.allJoins() + filter.where() + orderBy(sort);
+        // A forward-only scroll of scalar rows, nothing is added to the persistence context
+        return filter.bind(entityManager.createQuery(jpql, Object[].class))
+                .setHint(HibernateHints.HINT_FETCH_SIZE, STREAM_FETCH_SIZE)
+                .setHint(HibernateHints.HINT_READ_ONLY, true)
+                .getResultStream()
+                .map(TeacherRepositoryCustomImpl::toReadOnlyDTO);
+    }
+
+    @Override
+    public KeysetPage<TeacherReadOnlyDTO> findAllReadOnly(CompiledFilter filter, String sortBy,
+                                                          Sort.Direction direction, KeysetCursor after, int size) {
+        String id = QUERY.path(ID);
+        String sortKey = sortPath(sortBy);
+        boolean ascending = direction.isAscending();
+        String dir = ascending ? " asc" : " desc";
+
+        // The sort key is selected too, so that the cursor can be built from the last row
+        String jpql = SELECT_READ_ONLY + ", " + sortKey + " " + QUERY.from() + QUERY.allJoins()
+                + (after == null ? filter.where() : filter.where(seekPredicate(sortKey, id, after, ascending)))
+                + " order by " + (ID.equals(sortBy) ? id + dir : sortKey + dir + ", " + id + dir);
+
+        TypedQuery<Object[]> query = filter.bind(entityManager.createQuery(jpql, Object[].class));
+        if (after != null) {
+            query.setParameter("lastId", after.lastId());
+            if (!ID.equals(sortBy) && after.lastValue() != null) {
+                query.setParameter("lastValue", after.lastValueAs(attributeType(sortBy)));
+            }
+        }
+
+        // One extra row tells whether there is a next page, without counting
+        List<Object[]> rows = query.setMaxResults(size + 1).getResultList();
+        boolean hasNext = rows.size() > size;
+        if (hasNext) rows = rows.subList(0, size);
+
+        List<TeacherReadOnlyDTO> content = toReadOnlyDTOs(rows);
+
+        String nextCursor = null;
+        if (hasNext) {
+            Object[] last = rows.get(rows.size() - 1);
+            Object lastValue = last[SORT_KEY_INDEX];
+            nextCursor = new KeysetCursor(sortBy, direction, (Long) last[0],
+                    lastValue == null ? null : lastValue.toString()).encode();
+        }
+        return new KeysetPage<>(content, nextCursor);
+    }
+
+    private List<TeacherReadOnlyDTO> findReadOnly(CompiledFilter filter, Pageable pageable, int extraRows) {
+        String jpql = SELECT_READ_ONLY + " " + QUERY.from() + QUERY.allJoins() + filter.where() + orderBy(pageable.getSort());
+
+        TypedQuery<Object[]> query = filter.bind(entityManager.createQuery(jpql, Object[].class));
+        if (pageable.isPaged()) {
+            query.setFirstResult((int) pageable.getOffset());
+            query.setMaxResults(pageable.getPageSize() + extraRows);
+        }
+        return toReadOnlyDTOs(query.getResultList());
+    }
+
+    // Timed as the mapping phase of the request
+    private static List<TeacherReadOnlyDTO> toReadOnlyDTOs(List<Object[]> rows) {
+        return RequestTimings.time(RequestTimings.Phase.MAPPING, () -> rows.stream()
+                .map(TeacherRepositoryCustomImpl::toReadOnlyDTO)
+                .toList());
+    }
+
+    /**
+     * Rows strictly after the cursor in (sortKey, id) order. NULL sort keys are taken to sort low,
+     * i.e. first when ascending and last when descending, as MySQL and H2 order them.
+     */
+    private static String seekPredicate(String sortKey, String id, KeysetCursor after, boolean ascending) {
+        String afterId = id + (ascending ? " > " : " < ") + ":lastId";
+        if (ID.equals(after.sortBy())) return afterId;
+
+        if (after.lastValue() == null) {
+            return ascending
+                    ? "(" + sortKey + " is not null or " + afterId + ")"
+                    : "(" + sortKey + " is null and " + afterId + ")";
+        }
+
+        String pastValue = sortKey + (ascending ? " > " : " < ") + ":lastValue";
+        String sameValue = "(" + sortKey + " = :lastValue and " + afterId + ")";
+        return ascending
+                ? "(" + pastValue + " or " + sameValue + ")"
+                : "(" + pastValue + " or " + sameValue + " or " + sortKey + " is null)";
+    }
+
+    private static String orderBy(Sort sort) {
+        if (sort.isUnsorted()) return "";
+        return sort.stream()
+                .map(order -> sortPath(order.getProperty()) + (order.isAscending() ? " asc" : " desc"))
+                .collect(Collectors.joining(", ", " order by ", ""));
+    }
+
+    // The service rejects other attributes first, this only keeps them out of the JPQL whoever the caller
+    private static String sortPath(String attribute) {
+        if (!TeacherFilterQuery.SORTABLE.contains(attribute)) {
+            throw new IllegalArgumentException(attribute + " is not sortable");
+        }
+        return QUERY.path(attribute);
+    }
+
+    // Java type of an attribute path such as "user.lastname", from the JPA metamodel
+    private Class<?> attributeType(String attributePath) {
+        ManagedType<?> type = entityManager.getMetamodel().managedType(Teacher.class);
+        String[] parts = attributePath.split("\\.");
+        for (int i = 0; ; i++) {
+            Attribute<?, ?> attribute = type.getAttribute(parts[i]);   // IllegalArgumentException if missing
+            if (i == parts.length - 1) return attribute.getJavaType();
+            type = entityManager.getMetamodel().managedType(attribute.getJavaType());
+        }
+    }
+
+    private static TeacherReadOnlyDTO toReadOnlyDTO(Object[] row) {
+        UserReadOnlyDTO userReadOnlyDTO = new UserReadOnlyDTO((String) row[3], (String) row[4], (String) row[5]);
+
+        PersonalInfoReadOnlyDTO personalInfoReadOnlyDTO = new PersonalInfoReadOnlyDTO((String) row[6], (String) row[7]);
+
+        return new TeacherReadOnlyDTO((Long) row[0], (String) row[1], (Boolean) row[2],
+                userReadOnlyDTO, personalInfoReadOnlyDTO, (Long) row[8], (LocalDateTime) row[9]);
+    }
+}
@@ -1,14 +1,38 @@
 package gr.aueb.cf.eduapp.repository;
 
+import gr.aueb.cf.eduapp.authentication.TokenEpoch;
+import gr.aueb.cf.eduapp.authentication.UserPrincipal;
 import gr.aueb.cf.eduapp.model.User;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface UserRepository extends JpaRepository<User, Long>,
         JpaSpecificationExecutor<User> {
 
     Optional<User> findByVat(String vat);
     Optional<User> findByUsername(String username);
+
+    // Security lookups only need the principal columns of users, no associations
+    @Query("select new gr.aueb.cf.eduapp.authentication.UserPrincipal(u.id, u.username, u.password, u.role, " +
+            "u.isActive, u.firstname, u.lastname, u.tokenEpoch) from User u where u.username = :username")
+    Optional<UserPrincipal> findPrincipalByUsername(@Param("username") String username);
+
+    @Modifying
+    @Query("update User u set u.password = :password where u.username = :username")
+    int updatePassword(@Param("username") String username, @Param("password") String password);
+
+    @Query("select new gr.aueb.cf.eduapp.authentication.TokenEpoch(u.id, u.tokenEpoch) " +
+            "from User u where u.tokenEpoch > 0")
+    List<TokenEpoch> findRaisedTokenEpochs();
+
+    // (username, vat) of every user, for the registration key filters
+    @Query("select u.username, u.vat from User u")
+    Stream<Object[]> streamUniqueKeys();
 }
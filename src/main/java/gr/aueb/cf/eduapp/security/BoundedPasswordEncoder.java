@@ -0,0 +1,192 @@
+package gr.aueb.cf.eduapp.security;
+
+import gr.aueb.cf.eduapp.core.exceptions.AppServerBusyException;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * BCrypt encoder that runs every hash on a dedicated, size-bounded pool instead of
+ * the calling (Tomcat) thread. At most {@code poolSize} hashes run at once and at most
+ * {@code queueCapacity} wait, anything beyond that is rejected with
+ * {@link AppServerBusyException} (503), so a login storm cannot starve read traffic.
+ * Hashes with a lower cost than the configured one report {@link #upgradeEncoding(String)},
+ * which makes Spring Security re-hash them on the next successful login.
+ * The hashing time is published as "eduapp.password.hash" (tagged by operation), the waiting
+ * hashes as "eduapp.password.queued".
+ */
+@Slf4j
+public class BoundedPasswordEncoder implements PasswordEncoder {
+
+    private static final int MIN_STRENGTH = 4;
+    private static final int MAX_STRENGTH = 31;
+
+    private final BCryptPasswordEncoder delegate;
+    private final ThreadPoolExecutor executor;
+    private final long timeoutMillis;
+    private final int strength;
+    private final Timer encodeTimer;
+    private final Timer matchesTimer;
+
+    public BoundedPasswordEncoder(int strength, int poolSize, int queueCapacity, long timeoutMillis,
+                                  MeterRegistry meterRegistry) {
+        this.strength = strength;
+        this.delegate = new BCryptPasswordEncoder(strength);
+        this.timeoutMillis = timeoutMillis;
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "bcrypt-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+
+        this.encodeTimer = hashTimer("encode", meterRegistry);
+        this.matchesTimer = hashTimer("matches", meterRegistry);
+        Gauge.builder("eduapp.password.queued", executor, e -> e.getQueue().size())
+                .description("Password hashes waiting for a free hashing thread")
+                .register(meterRegistry);
+        log.info("Password hashing pool started with strength={}, poolSize={}, queueCapacity={}",
+                strength, poolSize, queueCapacity);
+    }
+
+    /**
+     * Finds the lowest BCrypt cost whose hashing time reaches {@code targetMillis} on this machine,
+     * but never below {@code minStrength}. Every extra cost unit doubles the hashing time,
+     * so a single measurement at {@code minStrength} is enough to extrapolate.
+     */
+    public static int calibrateStrength(long targetMillis, int minStrength) {
+        BCryptPasswordEncoder probe = new BCryptPasswordEncoder(minStrength);
+        probe.encode("calibration");                  // warm-up
+        long start = System.nanoTime();
+        probe.encode("calibration");
+        double elapsedMillis = Math.max((System.nanoTime() - start) / 1_000_000.0, 1.0);
+
+        int extra = (int) Math.floor(Math.log(targetMillis / elapsedMillis) / Math.log(2));
+        int strength = Math.min(Math.max(minStrength + Math.max(extra, 0), MIN_STRENGTH), MAX_STRENGTH);
+        log.info("BCrypt calibrated: strength={} took {} ms, target={} ms -> strength={}",
+                minStrength, Math.round(elapsedMillis), targetMillis, strength);
+        return strength;
+    }
+
+    public int getStrength() {
+        return strength;
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return runBounded(() -> encodeTimer.recordCallable(() -> delegate.encode(rawPassword)));
+    }
+
+    /**
+     * Hashes the passwords in parallel on the pool, returning the hashes in the same order.
+     * At most {@code poolSize} of them are submitted at a time, so a bulk import keeps the
+     * hashing threads busy without filling the queue that logins wait in.
+     */
+    public List<String> encodeAll(List<? extends CharSequence> rawPasswords) {
+        int window = executor.getMaximumPoolSize();
+        List<Future<String>> inFlight = new ArrayList<>(rawPasswords.size());
+        List<String> hashes = new ArrayList<>(rawPasswords.size());
+        try {
+            for (CharSequence rawPassword : rawPasswords) {
+                if (inFlight.size() - hashes.size() >= window) {
+                    hashes.add(await(inFlight.get(hashes.size())));
+                }
+                inFlight.add(submit(() -> encodeTimer.recordCallable(() -> delegate.encode(rawPassword))));
+            }
+            while (hashes.size() < inFlight.size()) {
+                hashes.add(await(inFlight.get(hashes.size())));
+            }
+            return hashes;
+        } catch (RuntimeException e) {
+            inFlight.forEach(this::abandon);
+            throw e;
+        }
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return runBounded(() -> matchesTimer.recordCallable(() -> delegate.matches(rawPassword, encodedPassword)));
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        return delegate.upgradeEncoding(encodedPassword);   // only parses the hash prefix, no hashing
+    }
+
+    private Timer hashTimer(String operation, MeterRegistry meterRegistry) {
+        return Timer.builder("eduapp.password.hash")
+                .description("BCrypt hashing time, excluding the wait for a hashing thread")
+                .tag("operation", operation)
+                .tag("strength", String.valueOf(strength))
+                .register(meterRegistry);
+    }
+
+    int queued() {
+        return executor.getQueue().size();
+    }
+
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    // Package-private so that tests can occupy the pool with tasks of their own
+    <T> T runBounded(Callable<T> task) {
+        return await(submit(task));
+    }
+
+    private <T> Future<T> submit(Callable<T> task) {
+        try {
+            return executor.submit(task);
+        } catch (RejectedExecutionException e) {
+            log.warn("Password hashing rejected, pool and queue are full");
+            throw new AppServerBusyException("PasswordHashing", "Too many concurrent password operations, try again later");
+        }
+    }
+
+    /**
+     * Waits for a hash, giving up after {@code timeoutMillis}. Giving up frees the queue slot of a hash
+     * that has not started, but cannot stop one that has: BCrypt never checks the interrupt flag, so
+     * {@code cancel(true)} only marks the future and the hash runs to the end on its thread. That thread
+     * stays busy until then and keeps counting against {@code poolSize}, so the rejection is always sized
+     * on the hashes actually in flight, abandoned ones included, and a timeout never lets more work in.
+     */
+    private <T> T await(Future<T> future) {
+        try {
+            return future.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            abandon(future);
+            throw new AppServerBusyException("PasswordHashing", "Password operation timed out, try again later");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            abandon(future);
+            throw new AppServerBusyException("PasswordHashing", "Password operation interrupted");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) throw runtimeException;
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private void abandon(Future<?> future) {
+        future.cancel(true);
+        if (future instanceof Runnable queued) executor.remove(queued);     // no-op once the hash has started
+    }
+}
@@ -1,7 +1,12 @@
 package gr.aueb.cf.eduapp.security;
 
 import gr.aueb.cf.eduapp.authentication.CustomUserDetailsService;
-import gr.aueb.cf.eduapp.authentication.JwtService;
+import gr.aueb.cf.eduapp.authentication.TokenClaims;
+import gr.aueb.cf.eduapp.authentication.TokenEpochRegistry;
+import gr.aueb.cf.eduapp.authentication.TokenRevocationService;
+import gr.aueb.cf.eduapp.authentication.UserPrincipal;
+import gr.aueb.cf.eduapp.authentication.VerifiedTokenCache;
+import gr.aueb.cf.eduapp.core.timing.RequestTimings;
 import io.jsonwebtoken.ExpiredJwtException;
 import io.jsonwebtoken.JwtException;
 import jakarta.servlet.FilterChain;
@@ -10,10 +15,13 @@ import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.slf4j.MDC;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.security.authentication.AuthenticationCredentialsNotFoundException;
 import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.AuthenticationException;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
@@ -33,8 +41,14 @@ import java.io.IOException;
 @Slf4j
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
-    private final JwtService jwtService;                 // Utility for extracting/validating JWTs
+    private final VerifiedTokenCache verifiedTokenCache; // Validates JWTs, hot tokens come from the cache
     private final UserDetailsService userDetailsService; // Loads user details from DB (via username)
+    private final TokenEpochRegistry tokenEpochRegistry; // Rejects tokens issued before the user's current epoch
+    private final TokenRevocationService tokenRevocationService; // Rejects tokens revoked by id (logout)
+
+    // When true, the principal is built from the token claims alone, without a DB lookup
+    @Value("${app.security.stateless-principal:false}")
+    private boolean statelessPrincipal;
 
     @Override
     protected void doFilterInternal(HttpServletRequest request,
@@ -56,18 +70,36 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         // Remove "Bearer " prefix and get the JWT string
         jwt = authHeader.substring(7).trim();
 
+        long authStart = System.nanoTime();     // the rest of the chain is not part of the auth phase
         try {
-            // Extract the "subject" (username) from the token
-            username = jwtService.extractSubject(jwt);
+            // Verify the token (signature + expiration) and keep its claims,
+            // tokens already verified by a previous request are a digest lookup
+            TokenClaims claims = verifiedTokenCache.validate(jwt);
+            username = claims.subject();
 
             // Only authenticate if we got a username and no auth exists yet in SecurityContext
             if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-                // Load the user details from DB
-                UserDetails userDetails = userDetailsService.loadUserByUsername(username);
+                // Tokens issued before the user's role/active flag changed are revoked
+                if (!tokenEpochRegistry.isCurrent(claims.userId(), claims.epoch())) {
+                    throw new BadCredentialsException("Revoked token");
+                }
+                // Single tokens revoked on logout
+                if (tokenRevocationService.isRevoked(claims)) {
+                    throw new BadCredentialsException("Revoked token");
+                }
+
+                UserDetails userDetails;
+                if (statelessPrincipal) {
+                    // Trust the verified claims, the role is already in the token
+                    userDetails = UserPrincipal.fromToken(claims);
+                } else {
+                    // Load the user details from DB
+                    userDetails = userDetailsService.loadUserByUsername(username);
 
-                // Validate the token against the user details (e.g., expiration, signature, etc.)
-                if (!jwtService.isTokenValid(jwt, userDetails)) {
-                    throw new BadCredentialsException("Invalid Token");
+                    // The token has already been verified, only check that it belongs to the loaded user
+                    if (!username.equals(userDetails.getUsername())) {
+                        throw new BadCredentialsException("Invalid Token");
+                    }
                 }
 
                 // Build an Authentication object (with roles/authorities from UserDetails)
@@ -80,6 +112,7 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
                 // Store authentication info in the SecurityContext → makes user "logged in"
                 SecurityContextHolder.getContext().setAuthentication(authToken);
+                MDC.put("user", username);      // MDCLoggingFilter runs before authentication
             }
         } catch (ExpiredJwtException e) {
             // Token is expired → triggers AuthenticationEntryPoint → results in 401 Unauthorized
@@ -87,9 +120,14 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         } catch (JwtException | IllegalArgumentException e) {
             // Token is invalid → triggers AuthenticationEntryPoint → results in 401 Unauthorized
             throw new BadCredentialsException("Invalid token");
+        } catch (AuthenticationException e) {
+            // Revoked or mismatched token → triggers AuthenticationEntryPoint → results in 401 Unauthorized
+            throw e;
         } catch (Exception e) {
             // Something else failed (unexpected) → triggers AccessDeniedHandler → 403 Forbidden
             throw new AccessDeniedException("Token validation failed");
+        } finally {
+            RequestTimings.add(RequestTimings.Phase.AUTH, System.nanoTime() - authStart);
         }
 
         // Continue request processing (now with authentication set, if token was valid)
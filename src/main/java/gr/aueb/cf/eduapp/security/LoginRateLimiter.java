@@ -0,0 +1,79 @@
+package gr.aueb.cf.eduapp.security;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Locale;
+
+/**
+ * Brute-force guard for the login endpoint. Every attempt takes a token from the bucket
+ * of the client IP, and is rejected while the bucket of the username is empty, so that credential
+ * stuffing is rejected before any password hash is computed. Only failed attempts take a token
+ * from the username's bucket: a user who logs in often is never limited, and someone who knows a
+ * username cannot lock it out by simply trying to log in as it. The trade-off: failures from many IPs
+ * still drain it, so an attacker with enough IPs can keep a known username locked out, which is the
+ * price of bounding password guesses per account whatever the number of IPs.
+ * Admitted and rejected attempts are counted in the "eduapp.login.attempts" metric.
+ */
+@Component
+public class LoginRateLimiter {
+
+    private final boolean enabled;
+    private final StripedTokenBuckets ipBuckets;
+    private final StripedTokenBuckets userBuckets;
+
+    private final Counter admitted;
+    private final Counter rejectedByIp;
+    private final Counter rejectedByUser;
+
+    public LoginRateLimiter(@Value("${app.security.login-rate-limit.enabled:true}") boolean enabled,
+                            @Value("${app.security.login-rate-limit.per-ip.capacity:20}") int ipCapacity,
+                            @Value("${app.security.login-rate-limit.per-ip.refill-per-minute:20}") double ipRefillPerMinute,
+                            @Value("${app.security.login-rate-limit.per-user.capacity:5}") int userCapacity,
+                            @Value("${app.security.login-rate-limit.per-user.refill-per-minute:5}") double userRefillPerMinute,
+                            @Value("${app.security.login-rate-limit.max-keys:100000}") int maxKeys,
+                            MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        int stripes = Runtime.getRuntime().availableProcessors() * 4;
+        this.ipBuckets = new StripedTokenBuckets(stripes, ipCapacity, ipRefillPerMinute, maxKeys);
+        this.userBuckets = new StripedTokenBuckets(stripes, userCapacity, userRefillPerMinute, maxKeys);
+
+        this.admitted = meterRegistry.counter("eduapp.login.attempts", "outcome", "admitted");
+        this.rejectedByIp = meterRegistry.counter("eduapp.login.attempts", "outcome", "rejected_ip");
+        this.rejectedByUser = meterRegistry.counter("eduapp.login.attempts", "outcome", "rejected_user");
+    }
+
+    /**
+     * Returns true if a login attempt for this username from this IP may proceed.
+     */
+    public boolean tryAcquire(String username, String clientIp) {
+        if (!enabled) return true;
+
+        long now = System.nanoTime();
+        if (!ipBuckets.tryAcquire(clientIp, now)) {
+            rejectedByIp.increment();
+            return false;
+        }
+        if (!userBuckets.hasToken(userKey(username), now)) {
+            rejectedByUser.increment();
+            return false;
+        }
+        admitted.increment();
+        return true;
+    }
+
+    /**
+     * Charges a failed login attempt to the username.
+     */
+    public void onFailure(String username) {
+        if (!enabled) return;
+        userBuckets.tryAcquire(userKey(username), System.nanoTime());
+    }
+
+    // Usernames are matched case-insensitively by the DB, so they are limited the same way
+    private static String userKey(String username) {
+        return username == null ? "" : username.toLowerCase(Locale.ROOT);
+    }
+}
@@ -1,6 +1,8 @@
 package gr.aueb.cf.eduapp.security;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpMethod;
@@ -11,8 +13,8 @@ import org.springframework.security.config.annotation.authentication.configurati
 import org.springframework.security.config.annotation.method.configuration.EnableMethodSecurity;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.AuthenticationEntryPoint;
 import org.springframework.security.web.SecurityFilterChain;
@@ -52,6 +54,9 @@ public class SecurityConfiguration {
                                 "/swagger-resources/**",   // Swagger resource descriptors
                                 "/configuration/**"        // Swagger configuration endpoints
                         ).permitAll()
+                        .requestMatchers("/actuator/health").permitAll()
+                        .requestMatchers("/actuator/**").hasAuthority(Role.SUPER_ADMIN.name())   // authorities have no ROLE_ prefix
+                        .requestMatchers(HttpMethod.POST, "/api/teachers/import").hasAuthority(Role.SUPER_ADMIN.name())
                         .requestMatchers("/api/teachers/**").hasAnyRole("SUPER_ADMIN", "TEACHER")
                         .requestMatchers("/api/employess/**").hasRole("EMPLOYEE")
                         .requestMatchers("/**").authenticated()
@@ -83,6 +88,10 @@ public class SecurityConfiguration {
                                                          PasswordEncoder passwordEncoder) {
         DaoAuthenticationProvider authProvider = new DaoAuthenticationProvider(userDetailsService);
         authProvider.setPasswordEncoder(passwordEncoder);
+        // Re-hash on successful login when the stored hash has a lower cost than the current one
+        if (userDetailsService instanceof UserDetailsPasswordService userDetailsPasswordService) {
+            authProvider.setUserDetailsPasswordService(userDetailsPasswordService);
+        }
         return authProvider;
     }
 
@@ -91,9 +100,18 @@ public class SecurityConfiguration {
         return config.getAuthenticationManager();
     }
 
-    @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder(12);
+    // BCrypt runs on its own bounded pool. With a target latency the cost is calibrated at startup
+    // (never below the configured strength) and older, cheaper hashes are upgraded on login.
+    @Bean(destroyMethod = "shutdown")
+    public PasswordEncoder passwordEncoder(@Value("${app.security.bcrypt.strength:12}") int strength,
+                                           @Value("${app.security.bcrypt.target-ms:0}") long targetMillis,
+                                           @Value("${app.security.bcrypt.pool-size:0}") int poolSize,
+                                           @Value("${app.security.bcrypt.queue-capacity:64}") int queueCapacity,
+                                           @Value("${app.security.bcrypt.timeout-ms:10000}") long timeoutMillis,
+                                           MeterRegistry meterRegistry) {
+        int cost = targetMillis > 0 ? BoundedPasswordEncoder.calibrateStrength(targetMillis, strength) : strength;
+        int threads = poolSize > 0 ? poolSize : Runtime.getRuntime().availableProcessors();
+        return new BoundedPasswordEncoder(cost, threads, queueCapacity, timeoutMillis, meterRegistry);
     }
 
     // AccessDeniedHandler (Handles 403 Forbidden)
@@ -0,0 +1,106 @@
+package gr.aueb.cf.eduapp.security;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Token buckets keyed by an arbitrary string, guarded by a fixed number of lock stripes.
+ * A key only contends with the keys of its own stripe, and after its first attempt
+ * a key costs no allocation: the bucket is refilled lazily and updated in place.
+ * Each stripe holds a bounded number of buckets. Full buckets are evicted first,
+ * since a full bucket behaves exactly like a missing one.
+ */
+final class StripedTokenBuckets {
+
+    private final Stripe[] stripes;
+    private final int mask;
+    private final double capacity;
+    private final double tokensPerNano;
+    private final int maxBucketsPerStripe;
+
+    StripedTokenBuckets(int stripeCount, double capacity, double refillPerMinute, int maxBuckets) {
+        int size = Integer.highestOneBit(Math.max(stripeCount - 1, 1)) << 1;   // next power of two
+        this.stripes = new Stripe[size];
+        for (int i = 0; i < size; i++) stripes[i] = new Stripe();
+        this.mask = size - 1;
+        this.capacity = capacity;
+        this.tokensPerNano = refillPerMinute / 60_000_000_000.0;
+        this.maxBucketsPerStripe = Math.max(maxBuckets / size, 1);
+    }
+
+    /**
+     * Takes one token from the key's bucket, returns false if it is empty.
+     */
+    boolean tryAcquire(String key, long nowNanos) {
+        Stripe stripe = stripe(key);
+        synchronized (stripe) {
+            Bucket bucket = stripe.buckets.get(key);
+            if (bucket == null) {
+                if (stripe.buckets.size() >= maxBucketsPerStripe) evict(stripe, nowNanos);
+                bucket = new Bucket(capacity, nowNanos);
+                stripe.buckets.put(key, bucket);
+            } else {
+                bucket.refill(nowNanos, capacity, tokensPerNano);
+            }
+
+            if (bucket.tokens < 1.0) return false;
+            bucket.tokens -= 1.0;
+            return true;
+        }
+    }
+
+    /**
+     * Tells whether the key's bucket has a token, without taking it. A missing bucket is full.
+     */
+    boolean hasToken(String key, long nowNanos) {
+        Stripe stripe = stripe(key);
+        synchronized (stripe) {
+            Bucket bucket = stripe.buckets.get(key);
+            if (bucket == null) return true;
+            bucket.refill(nowNanos, capacity, tokensPerNano);
+            return bucket.tokens >= 1.0;
+        }
+    }
+
+    private Stripe stripe(String key) {
+        int h = key.hashCode();
+        return stripes[(h ^ (h >>> 16)) & mask];
+    }
+
+    private void evict(Stripe stripe, long nowNanos) {
+        Iterator<Bucket> iterator = stripe.buckets.values().iterator();
+        while (iterator.hasNext()) {
+            Bucket bucket = iterator.next();
+            bucket.refill(nowNanos, capacity, tokensPerNano);
+            if (bucket.tokens >= capacity) iterator.remove();
+        }
+        // Still full of active keys: drop an arbitrary one rather than grow without bound
+        if (stripe.buckets.size() >= maxBucketsPerStripe) {
+            iterator = stripe.buckets.values().iterator();
+            iterator.next();
+            iterator.remove();
+        }
+    }
+
+    private static final class Stripe {
+        private final Map<String, Bucket> buckets = new HashMap<>();
+    }
+
+    private static final class Bucket {
+        private double tokens;
+        private long lastRefillNanos;
+
+        private Bucket(double tokens, long nowNanos) {
+            this.tokens = tokens;
+            this.lastRefillNanos = nowNanos;
+        }
+
+        private void refill(long nowNanos, double capacity, double tokensPerNano) {
+            long elapsed = nowNanos - lastRefillNanos;
+            if (elapsed <= 0) return;
+            tokens = Math.min(capacity, tokens + elapsed * tokensPerNano);
+            lastRefillNanos = nowNanos;
+        }
+    }
+}
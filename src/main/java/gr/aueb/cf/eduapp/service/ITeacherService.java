@@ -1,30 +1,59 @@
 package gr.aueb.cf.eduapp.service;
 
+import gr.aueb.cf.eduapp.core.enums.CountMode;
 import gr.aueb.cf.eduapp.core.exceptions.AppObjectAlreadyExists;
 import gr.aueb.cf.eduapp.core.exceptions.AppObjectInvalidArgumentException;
+import gr.aueb.cf.eduapp.core.exceptions.AppObjectNotAuthorizedException;
 import gr.aueb.cf.eduapp.core.exceptions.AppObjectNotFoundException;
+import gr.aueb.cf.eduapp.core.exceptions.AppObjectPreconditionFailedException;
 import gr.aueb.cf.eduapp.core.filters.Paginated;
 import gr.aueb.cf.eduapp.core.filters.TeacherFilters;
+import gr.aueb.cf.eduapp.dto.PasswordChangeDTO;
 import gr.aueb.cf.eduapp.dto.TeacherInsertDTO;
+import gr.aueb.cf.eduapp.dto.TeacherPatchDTO;
 import gr.aueb.cf.eduapp.dto.TeacherReadOnlyDTO;
 import gr.aueb.cf.eduapp.dto.TeacherUpdateDTO;
 import org.springframework.data.domain.Page;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.util.function.Consumer;
 
 public interface ITeacherService {
 
     TeacherReadOnlyDTO saveTeacher(TeacherInsertDTO teacherInsertDTO, MultipartFile amkaFile)
-            throws AppObjectAlreadyExists, IOException;
+            throws AppObjectAlreadyExists, IOException, AppObjectInvalidArgumentException;
 
-    TeacherReadOnlyDTO updateTeacher(TeacherUpdateDTO teacherUpdateDTO, MultipartFile amkaFile)
-            throws AppObjectAlreadyExists, IOException, AppObjectNotFoundException;
+    /**
+     * Updates a teacher. If expectedVersion is not null, the update only happens if it is the current version.
+     */
+    TeacherReadOnlyDTO updateTeacher(TeacherUpdateDTO teacherUpdateDTO, MultipartFile amkaFile, Long expectedVersion)
+            throws AppObjectAlreadyExists, IOException, AppObjectNotFoundException, AppObjectPreconditionFailedException,
+            AppObjectInvalidArgumentException;
+
+    /**
+     * Applies the non-null fields of the patch. If expectedVersion is not null, only if it is the current version.
+     * Only the teacher themselves (username) or a super admin can patch a teacher.
+     */
+    TeacherReadOnlyDTO patchTeacher(String uuid, TeacherPatchDTO teacherPatchDTO, Long expectedVersion, String username, boolean superAdmin)
+            throws AppObjectAlreadyExists, AppObjectNotFoundException, AppObjectPreconditionFailedException, AppObjectNotAuthorizedException;
+
+    void changePassword(String uuid, PasswordChangeDTO passwordChangeDTO, String username)
+            throws AppObjectNotFoundException, AppObjectNotAuthorizedException, AppObjectInvalidArgumentException;
 
     TeacherReadOnlyDTO getOneTeacher(String uuid) throws AppObjectNotFoundException;
 
-    Paginated<TeacherReadOnlyDTO> getPaginatedTeachers(int page, int size);
+    Paginated<TeacherReadOnlyDTO> getPaginatedTeachers(int page, int size, String cursor, CountMode countMode)
+            throws AppObjectInvalidArgumentException;
 //    Page<TeacherReadOnlyDTO> getPaginatedTeachers(int page, int size);
 
-    Paginated<TeacherReadOnlyDTO> getTeachersFilteredPaginated(TeacherFilters teacherFilters);
+    Paginated<TeacherReadOnlyDTO> getTeachersFilteredPaginated(TeacherFilters teacherFilters)
+            throws AppObjectInvalidArgumentException;
+
+    /**
+     * Hands every teacher matching the filters, in their sort order, to the consumer as it is read
+     * from a single query. Paging is ignored. Returns the number of teachers exported.
+     */
+    long exportTeachers(TeacherFilters teacherFilters, Consumer<TeacherReadOnlyDTO> consumer)
+            throws AppObjectInvalidArgumentException;
 }
@@ -0,0 +1,102 @@
+package gr.aueb.cf.eduapp.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import gr.aueb.cf.eduapp.core.events.TeacherChangedEvent;
+import gr.aueb.cf.eduapp.dto.TeacherReadOnlyDTO;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.function.Function;
+
+/**
+ * Read-through cache of {@link TeacherReadOnlyDTO} by uuid, for GET /api/teachers/{uuid}.
+ * Bounded by the estimated memory of its entries rather than their number.
+ * An entry is dropped only after the transaction that changed the teacher commits: a load racing
+ * with the update either reads the committed row or is discarded by the invalidation, which waits
+ * for in-flight loads of the same key. The ttl bounds staleness for changes made on other nodes.
+ * With read/write routing a load may read a lagging replica, so for the sticky window after a change
+ * the teacher is loaded without being cached.
+ * Hit/miss/eviction counters are published as the "teachers" cache metrics, the estimated size as
+ * "eduapp.cache.teachers.bytes".
+ */
+@Component
+@Slf4j
+public class TeacherCache {
+
+    private final boolean enabled;
+    private final Cache<String, TeacherReadOnlyDTO> cache;
+    private final Cache<String, Boolean> recentlyChanged;
+
+    public TeacherCache(@Value("${app.teacher-cache.enabled:true}") boolean enabled,
+                        @Value("${app.teacher-cache.max-bytes:67108864}") long maxBytes,
+                        @Value("${app.teacher-cache.ttl:PT10M}") Duration ttl,
+                        @Value("${app.datasource.routing.enabled:false}") boolean routingEnabled,
+                        @Value("${app.datasource.routing.sticky-window:PT5S}") Duration stickyWindow,
+                        MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maxBytes)
+                .weigher((String uuid, TeacherReadOnlyDTO teacher) -> estimatedBytes(uuid, teacher))
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        this.recentlyChanged = Caffeine.newBuilder()
+                .expireAfterWrite(routingEnabled ? stickyWindow : Duration.ZERO)
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "teachers");
+        Gauge.builder("eduapp.cache.teachers.bytes", cache,
+                        c -> c.policy().eviction().map(eviction -> eviction.weightedSize().orElse(0L)).orElse(0L))
+                .description("Estimated memory of the cached teachers")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Returns the cached teacher or loads it. A loader returning null (not found) caches nothing.
+     */
+    public TeacherReadOnlyDTO get(String uuid, Function<String, TeacherReadOnlyDTO> loader) {
+        if (!enabled || recentlyChanged.getIfPresent(uuid) != null) return loader.apply(uuid);
+        return cache.get(uuid, loader);
+    }
+
+    public void invalidate(String uuid) {
+        cache.invalidate(uuid);
+    }
+
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    @TransactionalEventListener
+    public void onTeacherChanged(TeacherChangedEvent event) {
+        recentlyChanged.put(event.teacher().uuid(), Boolean.TRUE);
+        invalidate(event.teacher().uuid());
+        log.debug("Cached teacher with uuid={} invalidated", event.teacher().uuid());
+    }
+
+    // Rough heap size: object headers and references plus 2 bytes per char (compact strings may use less)
+    private static int estimatedBytes(String uuid, TeacherReadOnlyDTO teacher) {
+        int bytes = 200;
+        bytes += chars(uuid) + chars(teacher.uuid());
+        if (teacher.userReadOnlyDTO() != null) {
+            bytes += chars(teacher.userReadOnlyDTO().firstname()) + chars(teacher.userReadOnlyDTO().lastname())
+                    + chars(teacher.userReadOnlyDTO().vat());
+        }
+        if (teacher.personalInfoReadOnlyDTO() != null) {
+            bytes += chars(teacher.personalInfoReadOnlyDTO().amka()) + chars(teacher.personalInfoReadOnlyDTO().identityNumber());
+        }
+        return bytes;
+    }
+
+    private static int chars(String value) {
+        return value == null ? 0 : 40 + 2 * value.length();
+    }
+}
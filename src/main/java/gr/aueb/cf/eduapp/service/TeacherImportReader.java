@@ -0,0 +1,198 @@
+package gr.aueb.cf.eduapp.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import gr.aueb.cf.eduapp.core.enums.GenderType;
+import gr.aueb.cf.eduapp.core.enums.Role;
+import gr.aueb.cf.eduapp.core.exceptions.AppObjectInvalidArgumentException;
+import gr.aueb.cf.eduapp.dto.PersonalInfoInsertDTO;
+import gr.aueb.cf.eduapp.dto.TeacherInsertDTO;
+import gr.aueb.cf.eduapp.dto.UserInsertDTO;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.function.Function;
+
+/**
+ * Reads the rows of a bulk teacher import one line at a time, so that the file is never held in memory.
+ * CSV starts with a header naming the columns (the fields of the insert DTOs, in any order),
+ * NDJSON has one {@link TeacherInsertDTO} per line. A line that cannot be parsed is returned
+ * as a row with an error instead of ending the import. Blank lines are skipped.
+ */
+public abstract class TeacherImportReader implements Iterator<TeacherImportReader.Row> {
+
+    /**
+     * A parsed line, {@code line} is its 1-based line number in the file.
+     */
+    public record Row(long line, TeacherInsertDTO teacher, String error) {}
+
+    public static final List<String> CSV_COLUMNS = List.of("isActive", "firstname", "lastname", "username",
+            "password", "vat", "fatherName", "fatherLastname", "motherName", "motherLastname", "dateOfBirth",
+            "gender", "role", "amka", "identityNumber", "placeOfBirth", "municipalityOfRegistration");
+
+    private final BufferedReader reader;
+    private long lineNumber;
+    private String nextLine;
+
+    private TeacherImportReader(Reader reader) {
+        this.reader = reader instanceof BufferedReader bufferedReader ? bufferedReader : new BufferedReader(reader);
+    }
+
+    public static TeacherImportReader csv(Reader reader) throws AppObjectInvalidArgumentException {
+        CsvReader csvReader = new CsvReader(reader);
+        csvReader.readHeader();
+        return csvReader;
+    }
+
+    public static TeacherImportReader ndjson(Reader reader, ObjectMapper objectMapper) {
+        return new NdjsonReader(reader, objectMapper);
+    }
+
+    protected abstract Row parse(long line, String text);
+
+    @Override
+    public boolean hasNext() {
+        while (nextLine == null) {
+            String text = readLine();
+            if (text == null) return false;
+            if (!text.isBlank()) nextLine = text;
+        }
+        return true;
+    }
+
+    @Override
+    public Row next() {
+        if (!hasNext()) throw new NoSuchElementException();
+        String text = nextLine;
+        nextLine = null;
+        return parse(lineNumber, text);
+    }
+
+    protected String readLine() {
+        try {
+            String text = reader.readLine();
+            if (text != null) lineNumber++;
+            return text;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static final class NdjsonReader extends TeacherImportReader {
+        private final ObjectMapper objectMapper;
+
+        private NdjsonReader(Reader reader, ObjectMapper objectMapper) {
+            super(reader);
+            this.objectMapper = objectMapper;
+        }
+
+        @Override
+        protected Row parse(long line, String text) {
+            try {
+                TeacherInsertDTO teacher = objectMapper.readValue(text, TeacherInsertDTO.class);
+                return teacher == null ? new Row(line, null, "Expected a teacher object") : new Row(line, teacher, null);
+            } catch (JsonProcessingException e) {
+                return new Row(line, null, e.getOriginalMessage());
+            }
+        }
+    }
+
+    private static final class CsvReader extends TeacherImportReader {
+        private final Map<String, Integer> columns = new HashMap<>();
+
+        private CsvReader(Reader reader) {
+            super(reader);
+        }
+
+        private void readHeader() throws AppObjectInvalidArgumentException {
+            String header = readLine();
+            if (header == null) throw new AppObjectInvalidArgumentException("Import", "The CSV has no header");
+            List<String> names = split(header.startsWith("\uFEFF") ? header.substring(1) : header);
+            for (int i = 0; i < names.size(); i++) columns.put(names.get(i).trim(), i);
+
+            List<String> missing = CSV_COLUMNS.stream().filter(column -> !columns.containsKey(column)).toList();
+            if (!missing.isEmpty()) {
+                throw new AppObjectInvalidArgumentException("Import", "The CSV header misses the columns " + missing);
+            }
+        }
+
+        @Override
+        protected Row parse(long line, String text) {
+            List<String> fields = split(text);
+            if (fields.size() != columns.size()) {
+                return new Row(line, null, "Expected " + columns.size() + " columns, found " + fields.size());
+            }
+            try {
+                UserInsertDTO user = new UserInsertDTO(
+                        field(fields, "firstname"), field(fields, "lastname"), field(fields, "username"),
+                        field(fields, "password"), field(fields, "vat"), field(fields, "fatherName"),
+                        field(fields, "fatherLastname"), field(fields, "motherName"), field(fields, "motherLastname"),
+                        parseOrNull(field(fields, "dateOfBirth"), LocalDate::parse),
+                        parseOrNull(field(fields, "gender"), value -> GenderType.valueOf(value.toUpperCase(Locale.ROOT))),
+                        parseOrNull(field(fields, "role"), value -> Role.valueOf(value.toUpperCase(Locale.ROOT))));
+                PersonalInfoInsertDTO personalInfo = new PersonalInfoInsertDTO(
+                        field(fields, "amka"), field(fields, "identityNumber"),
+                        field(fields, "placeOfBirth"), field(fields, "municipalityOfRegistration"));
+                return new Row(line, new TeacherInsertDTO(parseOrNull(field(fields, "isActive"), TeacherImportReader::parseBoolean),
+                        user, personalInfo), null);
+            } catch (IllegalArgumentException | DateTimeParseException e) {
+                return new Row(line, null, e.getMessage());
+            }
+        }
+
+        private String field(List<String> fields, String column) {
+            String value = fields.get(columns.get(column)).trim();
+            return value.isEmpty() ? null : value;
+        }
+
+        // RFC 4180 fields: quoted fields may contain commas and doubled quotes, not line breaks
+        private static List<String> split(String text) {
+            List<String> fields = new ArrayList<>();
+            StringBuilder field = new StringBuilder();
+            boolean quoted = false;
+            for (int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+                if (quoted) {
+                    if (c == '"' && i + 1 < text.length() && text.charAt(i + 1) == '"') {
+                        field.append('"');
+                        i++;
+                    } else if (c == '"') {
+                        quoted = false;
+                    } else {
+                        field.append(c);
+                    }
+                } else if (c == '"') {
+                    quoted = true;
+                } else if (c == ',') {
+                    fields.add(field.toString());
+                    field.setLength(0);
+                } else {
+                    field.append(c);
+                }
+            }
+            fields.add(field.toString());
+            return fields;
+        }
+    }
+
+    private static <T> T parseOrNull(String value, Function<String, T> parser) {
+        return value == null ? null : parser.apply(value);
+    }
+
+    private static Boolean parseBoolean(String value) {
+        if (value.equalsIgnoreCase("true")) return true;
+        if (value.equalsIgnoreCase("false")) return false;
+        throw new IllegalArgumentException("isActive must be true or false, found " + value);
+    }
+}
@@ -0,0 +1,265 @@
+package gr.aueb.cf.eduapp.service;
+
+import gr.aueb.cf.eduapp.core.events.TeacherChangedEvent;
+import gr.aueb.cf.eduapp.core.events.TeacherKeysSavedEvent;
+import gr.aueb.cf.eduapp.core.exceptions.AppObjectAlreadyExists;
+import gr.aueb.cf.eduapp.core.exceptions.AppServerBusyException;
+import gr.aueb.cf.eduapp.dto.TeacherImportResultDTO;
+import gr.aueb.cf.eduapp.dto.TeacherInsertDTO;
+import gr.aueb.cf.eduapp.dto.TeacherReadOnlyDTO;
+import gr.aueb.cf.eduapp.dto.UserInsertDTO;
+import gr.aueb.cf.eduapp.mapper.Mapper;
+import gr.aueb.cf.eduapp.model.Teacher;
+import gr.aueb.cf.eduapp.repository.TeacherRepository;
+import gr.aueb.cf.eduapp.security.BoundedPasswordEncoder;
+import jakarta.validation.Validator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Bulk registration of teachers. The rows are processed in chunks of {@code chunkSize}, each chunk with
+ * one uniqueness query, its passwords hashed in parallel and its inserts batched in one transaction.
+ * Only the current chunk is held in memory, whatever the size of the import.
+ */
+@Service
+@Slf4j
+public class TeacherImportService {
+
+    private final TeacherRepository teacherRepository;
+    private final Mapper mapper;
+    private final PasswordEncoder passwordEncoder;
+    private final TeacherKeyFilters teacherKeyFilters;
+    private final ApplicationEventPublisher eventPublisher;
+    private final Validator validator;
+    private final TransactionTemplate transactionTemplate;
+    private final int chunkSize;
+
+    public TeacherImportService(TeacherRepository teacherRepository,
+                                Mapper mapper,
+                                PasswordEncoder passwordEncoder,
+                                TeacherKeyFilters teacherKeyFilters,
+                                ApplicationEventPublisher eventPublisher,
+                                Validator validator,
+                                PlatformTransactionManager transactionManager,
+                                @Value("${app.teacher-import.chunk-size:500}") int chunkSize) {
+        this.teacherRepository = teacherRepository;
+        this.mapper = mapper;
+        this.passwordEncoder = passwordEncoder;
+        this.teacherKeyFilters = teacherKeyFilters;
+        this.eventPublisher = eventPublisher;
+        this.validator = validator;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Imports the rows, handing the results of each chunk, in row order, to {@code results}
+     * once the chunk is committed.
+     */
+    public void importTeachers(Iterator<TeacherImportReader.Row> rows, Consumer<List<TeacherImportResultDTO>> results) {
+        long created = 0;
+        long failed = 0;
+        List<TeacherImportReader.Row> chunk = new ArrayList<>(chunkSize);
+        while (rows.hasNext()) {
+            chunk.add(rows.next());
+            if (chunk.size() == chunkSize || !rows.hasNext()) {
+                List<TeacherImportResultDTO> chunkResults = importChunk(chunk);
+                long chunkCreated = chunkResults.stream().filter(result -> result.uuid() != null).count();
+                created += chunkCreated;
+                failed += chunkResults.size() - chunkCreated;
+                results.accept(chunkResults);
+                chunk.clear();
+            }
+        }
+        log.info("Teacher import finished, created={}, failed={}", created, failed);
+    }
+
+    List<TeacherImportResultDTO> importChunk(List<TeacherImportReader.Row> chunk) {
+        TeacherImportResultDTO[] results = new TeacherImportResultDTO[chunk.size()];
+
+        // Parse and validation errors, then the keys repeated within the chunk (the first row keeps them)
+        List<Integer> candidates = new ArrayList<>();
+        Map<String, Map<String, Long>> seenKeys = new HashMap<>();
+        for (int i = 0; i < chunk.size(); i++) {
+            TeacherImportReader.Row row = chunk.get(i);
+            String error = row.error() != null ? row.error() : validate(row.teacher());
+            if (error != null) {
+                results[i] = TeacherImportResultDTO.failed(row.line(), "InvalidRow", error);
+                continue;
+            }
+            List<String> keys = keys(row.teacher());
+            String duplicate = null;
+            for (int k = 0; k < keys.size() && duplicate == null; k++) {
+                Long firstLine = seenKeys.getOrDefault(TeacherService.UNIQUE_KEY_CODES.get(k), Map.of()).get(keys.get(k));
+                if (firstLine != null) duplicate = TeacherService.UNIQUE_KEY_CODES.get(k);
+            }
+            if (duplicate != null) {
+                long firstLine = seenKeys.get(duplicate).get(keys.get(TeacherService.UNIQUE_KEY_CODES.indexOf(duplicate)));
+                AppObjectAlreadyExists e = new AppObjectAlreadyExists(duplicate, "Same " + duplicate + " as line " + firstLine);
+                results[i] = TeacherImportResultDTO.failed(row.line(), e.getCode(), e.getMessage());
+                continue;
+            }
+            for (int k = 0; k < keys.size(); k++) {
+                seenKeys.computeIfAbsent(TeacherService.UNIQUE_KEY_CODES.get(k), code -> new HashMap<>()).put(keys.get(k), row.line());
+            }
+            candidates.add(i);
+        }
+
+        // Keys taken in the DB: one query for the rows the filters cannot rule out
+        List<Integer> probed = candidates.stream()
+                .filter(i -> {
+                    List<String> keys = keys(chunk.get(i).teacher());
+                    return teacherKeyFilters.mightBeTaken(keys.get(0), keys.get(1), keys.get(2), keys.get(3));
+                })
+                .toList();
+        if (!probed.isEmpty()) {
+            Map<String, Set<String>> takenKeys = findTakenKeys(probed.stream().map(i -> keys(chunk.get(i).teacher())).toList());
+            List<Integer> free = new ArrayList<>(candidates.size());
+            for (int i : candidates) {
+                List<String> keys = keys(chunk.get(i).teacher());
+                String taken = null;
+                for (int k = 0; k < keys.size() && taken == null; k++) {
+                    String code = TeacherService.UNIQUE_KEY_CODES.get(k);
+                    if (takenKeys.getOrDefault(code, Set.of()).contains(keys.get(k))) taken = code;
+                }
+                if (taken == null) {
+                    free.add(i);
+                } else {
+                    AppObjectAlreadyExists e = alreadyExists(taken, keys);
+                    results[i] = TeacherImportResultDTO.failed(chunk.get(i).line(), e.getCode(), e.getMessage());
+                }
+            }
+            candidates = free;
+        }
+
+        if (!candidates.isEmpty()) {
+            try {
+                List<String> hashes = encodeAll(candidates.stream()
+                        .map(i -> chunk.get(i).teacher().userInsertDTO().password())
+                        .toList());
+                persist(chunk, candidates, hashes, results);
+            } catch (AppServerBusyException e) {
+                for (int i : candidates) results[i] = TeacherImportResultDTO.failed(chunk.get(i).line(), e.getCode(), e.getMessage());
+            }
+        }
+        return List.of(results);
+    }
+
+    // The rows of the chunk in one transaction, their inserts batched at the flush
+    private void persist(List<TeacherImportReader.Row> chunk, List<Integer> candidates, List<String> hashes,
+                         TeacherImportResultDTO[] results) {
+        try {
+            List<TeacherReadOnlyDTO> saved = transactionTemplate.execute(status -> save(chunk, candidates, hashes));
+            for (int k = 0; k < candidates.size(); k++) {
+                results[candidates.get(k)] = TeacherImportResultDTO.created(chunk.get(candidates.get(k)).line(), saved.get(k).uuid());
+            }
+        } catch (DataIntegrityViolationException e) {
+            // A key taken since the uniqueness query rolled the chunk back, the rows one by one tell which
+            log.debug("Teacher import chunk rolled back, retrying its {} rows one by one", candidates.size());
+            for (int k = 0; k < candidates.size(); k++) {
+                int i = candidates.get(k);
+                String hash = hashes.get(k);
+                TeacherImportReader.Row row = chunk.get(i);
+                try {
+                    List<TeacherReadOnlyDTO> saved = transactionTemplate.execute(status -> save(chunk, List.of(i), List.of(hash)));
+                    results[i] = TeacherImportResultDTO.created(row.line(), saved.get(0).uuid());
+                } catch (DataIntegrityViolationException rowException) {
+                    String code = TeacherService.violatedUniqueKey(rowException);
+                    if (code == null) code = takenUniqueKey(keys(row.teacher()));
+                    if (code == null) {
+                        results[i] = TeacherImportResultDTO.failed(row.line(), "InvalidRow", rowException.getMostSpecificCause().getMessage());
+                    } else {
+                        AppObjectAlreadyExists alreadyExists = alreadyExists(code, keys(row.teacher()));
+                        results[i] = TeacherImportResultDTO.failed(row.line(), alreadyExists.getCode(), alreadyExists.getMessage());
+                    }
+                }
+            }
+        }
+    }
+
+    private List<TeacherReadOnlyDTO> save(List<TeacherImportReader.Row> chunk, List<Integer> rows, List<String> hashes) {
+        List<Teacher> teachers = new ArrayList<>(rows.size());
+        for (int k = 0; k < rows.size(); k++) {
+            teachers.add(mapper.mapToTeacherEntity(chunk.get(rows.get(k)).teacher(), hashes.get(k)));
+        }
+        // Ids come from the pooled generators, so nothing is written before the flush
+        teacherRepository.saveAll(teachers);
+        teacherRepository.flush();
+
+        List<TeacherReadOnlyDTO> saved = new ArrayList<>(teachers.size());
+        for (Teacher teacher : teachers) {
+            TeacherReadOnlyDTO teacherDTO = mapper.mapToTeacherReadOnlyDTO(teacher);
+            eventPublisher.publishEvent(new TeacherChangedEvent(teacherDTO));
+            eventPublisher.publishEvent(new TeacherKeysSavedEvent(teacher.getUser().getVat(), teacher.getPersonalInfo().getAmka(),
+                    teacher.getUser().getUsername(), teacher.getPersonalInfo().getIdentityNumber()));
+            saved.add(teacherDTO);
+        }
+        return saved;
+    }
+
+    private List<String> encodeAll(List<String> passwords) {
+        if (passwordEncoder instanceof BoundedPasswordEncoder boundedPasswordEncoder) {
+            return boundedPasswordEncoder.encodeAll(passwords);
+        }
+        return passwords.stream().map(passwordEncoder::encode).toList();
+    }
+
+    // code -> the taken values among the given keys
+    private Map<String, Set<String>> findTakenKeys(List<List<String>> keys) {
+        List<Set<String>> values = new ArrayList<>();
+        for (int k = 0; k < TeacherService.UNIQUE_KEY_CODES.size(); k++) {
+            int index = k;
+            values.add(keys.stream().map(rowKeys -> rowKeys.get(index)).collect(Collectors.toSet()));
+        }
+        Map<String, Set<String>> takenKeys = new HashMap<>();
+        for (Object[] taken : teacherRepository.findTakenUniqueKeysIn(values.get(0), values.get(1), values.get(2), values.get(3))) {
+            takenKeys.computeIfAbsent((String) taken[0], code -> new HashSet<>()).add((String) taken[1]);
+        }
+        return takenKeys;
+    }
+
+    // For constraints whose name is not recognised (see TeacherService#takenUniqueKey), the row's transaction is over
+    private String takenUniqueKey(List<String> keys) {
+        return TeacherService.firstTakenKey(transactionTemplate.execute(status ->
+                teacherRepository.findTakenUniqueKeys(keys.get(0), keys.get(1), keys.get(2), keys.get(3))));
+    }
+
+    // The values of the unique keys in the order of TeacherService.UNIQUE_KEY_CODES
+    private static List<String> keys(TeacherInsertDTO teacher) {
+        return List.of(teacher.userInsertDTO().vat(), teacher.personalInfoInsertDTO().amka(),
+                teacher.userInsertDTO().username(), teacher.personalInfoInsertDTO().identityNumber());
+    }
+
+    private static AppObjectAlreadyExists alreadyExists(String code, List<String> keys) {
+        return TeacherService.alreadyExists(code, keys.get(0), keys.get(1), keys.get(2), keys.get(3));
+    }
+
+    // What @Valid checks on POST /api/teachers (cascading into the user and the personal info),
+    // plus the fields a registration cannot do without
+    private String validate(TeacherInsertDTO teacher) {
+        List<String> errors = new ArrayList<>();
+        validator.validate(teacher).forEach(violation -> errors.add(violation.getMessage()));
+        UserInsertDTO user = teacher.userInsertDTO();
+        if (user != null) {
+            if (user.username() == null) errors.add("Username is required");
+            if (user.password() == null) errors.add("Password is required");
+        }
+        return errors.isEmpty() ? null : errors.stream().distinct().collect(Collectors.joining("; "));
+    }
+}
@@ -0,0 +1,218 @@
+package gr.aueb.cf.eduapp.service;
+
+import gr.aueb.cf.eduapp.core.BloomFilter;
+import gr.aueb.cf.eduapp.core.events.TeacherKeysSavedEvent;
+import gr.aueb.cf.eduapp.repository.PersonalInfoRepository;
+import gr.aueb.cf.eduapp.repository.UserRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.ToDoubleFunction;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Bloom filters of the VAT, AMKA, username and identity number values already taken, so that
+ * registrations whose values are all definitely new skip the uniqueness query. A possible hit falls
+ * through to the query, and the unique constraints stay the final word (e.g. for a registration
+ * committed on another node since the last rebuild).
+ * Built in the background at startup, like {@link TeacherSearchIndex}, so that the table scan does not
+ * hold up startup, then rebuilt periodically from the tables and updated after each commit in between.
+ * Until the first build completes every value counts as possibly taken. Values are trimmed, stripped of
+ * accents and lower-cased before hashing, like the accent- and case-insensitive MySQL collation compares
+ * them, so that a value differing from a taken one only in case, accents or surrounding spaces is never ruled out.
+ * Memory and expected false positive probability are published per key as
+ * "eduapp.teacher-keys.filter.bytes" and "eduapp.teacher-keys.filter.fpp", the outcome of the
+ * checks as "eduapp.teacher-keys.checks".
+ */
+@Component
+@Slf4j
+public class TeacherKeyFilters {
+
+    private static final double FALSE_POSITIVE_PROBABILITY = 0.01;
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+
+    private enum Key { VAT, AMKA, USERNAME, IDENTITY_NUMBER }
+
+    private final UserRepository userRepository;
+    private final PersonalInfoRepository personalInfoRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final long expectedValues;
+    private final Counter skippedChecks;
+    private final Counter probedChecks;
+
+    private volatile BloomFilter[] filters;     // by Key ordinal, null until the first build completes
+    // Keys committed while a build reads the tables, replayed onto the new filters (guarded by this)
+    private final List<TeacherKeysSavedEvent> pending = new ArrayList<>();
+    private boolean building;
+    private final Object rebuildLock = new Object();
+
+    public TeacherKeyFilters(UserRepository userRepository,
+                             PersonalInfoRepository personalInfoRepository,
+                             PlatformTransactionManager transactionManager,
+                             MeterRegistry meterRegistry,
+                             @Value("${app.teacher-keys.filter.enabled:true}") boolean enabled,
+                             @Value("${app.teacher-keys.filter.expected-values:100000}") long expectedValues) {
+        this.userRepository = userRepository;
+        this.personalInfoRepository = personalInfoRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.enabled = enabled;
+        this.expectedValues = expectedValues;
+
+        this.skippedChecks = checks(meterRegistry, "skipped");
+        this.probedChecks = checks(meterRegistry, "probed");
+        for (Key key : Key.values()) {
+            String tag = key.name().toLowerCase(Locale.ROOT);
+            Gauge.builder("eduapp.teacher-keys.filter.bytes", this, f -> f.stat(key, BloomFilter::memoryBytes))
+                    .description("Memory of the Bloom filter of taken values")
+                    .tag("key", tag)
+                    .baseUnit("bytes")
+                    .register(meterRegistry);
+            Gauge.builder("eduapp.teacher-keys.filter.fpp", this, f -> f.stat(key, BloomFilter::expectedFalsePositiveProbability))
+                    .description("Expected false positive probability of the Bloom filter of taken values")
+                    .tag("key", tag)
+                    .register(meterRegistry);
+        }
+    }
+
+    /**
+     * False only if none of the values can be taken, i.e. the uniqueness query can be skipped.
+     */
+    public boolean mightBeTaken(String vat, String amka, String username, String identityNumber) {
+        BloomFilter[] current = filters;
+        boolean mightBeTaken = current == null
+                || mightContain(current, Key.VAT, vat)
+                || mightContain(current, Key.AMKA, amka)
+                || mightContain(current, Key.USERNAME, username)
+                || mightContain(current, Key.IDENTITY_NUMBER, identityNumber);
+        (mightBeTaken ? probedChecks : skippedChecks).increment();
+        return mightBeTaken;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildInBackground() {
+        if (!enabled) return;
+        Thread builder = new Thread(this::buildIfMissing, "teacher-key-filters");
+        builder.setDaemon(true);
+        builder.start();
+    }
+
+    @Scheduled(initialDelayString = "${app.teacher-keys.filter.refresh-ms:600000}",
+            fixedDelayString = "${app.teacher-keys.filter.refresh-ms:600000}")
+    public void rebuild() {
+        if (!enabled) return;
+        // One build at a time, a rebuild requested during the startup build runs after it
+        synchronized (rebuildLock) {
+            rebuildExclusively();
+        }
+    }
+
+    private void buildIfMissing() {
+        synchronized (rebuildLock) {
+            if (filters == null) rebuildExclusively();      // unless a rebuild already ran before this thread
+        }
+    }
+
+    private void rebuildExclusively() {
+        synchronized (this) {
+            building = true;
+            pending.clear();
+        }
+
+        BloomFilter[] rebuilt;
+        try {
+            rebuilt = transactionTemplate.execute(status -> {
+                long size = Math.max(expectedValues, userRepository.count() * 2);
+                BloomFilter[] built = new BloomFilter[Key.values().length];
+                for (Key key : Key.values()) built[key.ordinal()] = new BloomFilter(size, FALSE_POSITIVE_PROBABILITY);
+
+                try (Stream<Object[]> users = userRepository.streamUniqueKeys()) {
+                    users.forEach(row -> {
+                        put(built, Key.USERNAME, (String) row[0]);
+                        put(built, Key.VAT, (String) row[1]);
+                    });
+                }
+                try (Stream<Object[]> personalInfos = personalInfoRepository.streamUniqueKeys()) {
+                    personalInfos.forEach(row -> {
+                        put(built, Key.AMKA, (String) row[0]);
+                        put(built, Key.IDENTITY_NUMBER, (String) row[1]);
+                    });
+                }
+                return built;
+            });
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                building = false;
+                pending.clear();
+            }
+            log.error("Teacher key filters build failed, registrations keep checking the DB", e);
+            return;
+        }
+
+        synchronized (this) {
+            pending.forEach(keys -> put(rebuilt, keys));
+            pending.clear();
+            building = false;
+            filters = rebuilt;
+        }
+        log.info("Teacher key filters built with {} usernames, {} bytes per key, expected false positive probability {}",
+                rebuilt[Key.USERNAME.ordinal()].insertions(), rebuilt[Key.USERNAME.ordinal()].memoryBytes(),
+                rebuilt[Key.USERNAME.ordinal()].expectedFalsePositiveProbability());
+    }
+
+    @TransactionalEventListener
+    public synchronized void onTeacherKeysSaved(TeacherKeysSavedEvent event) {
+        BloomFilter[] current = filters;
+        if (current != null) put(current, event);
+        if (building) pending.add(event);
+    }
+
+    private static void put(BloomFilter[] filters, TeacherKeysSavedEvent keys) {
+        put(filters, Key.VAT, keys.vat());
+        put(filters, Key.AMKA, keys.amka());
+        put(filters, Key.USERNAME, keys.username());
+        put(filters, Key.IDENTITY_NUMBER, keys.identityNumber());
+    }
+
+    private static void put(BloomFilter[] filters, Key key, String value) {
+        if (value != null) filters[key.ordinal()].put(normalize(value));
+    }
+
+    private static boolean mightContain(BloomFilter[] filters, Key key, String value) {
+        return value != null && filters[key.ordinal()].mightContain(normalize(value));
+    }
+
+    // Merging values only adds false positives, which fall through to the query
+    private static String normalize(String value) {
+        String decomposed = Normalizer.normalize(value.trim(), Normalizer.Form.NFD);
+        return COMBINING_MARKS.matcher(decomposed).replaceAll("").toLowerCase(Locale.ROOT);
+    }
+
+    private double stat(Key key, ToDoubleFunction<BloomFilter> stat) {
+        BloomFilter[] current = filters;
+        return current == null ? 0 : stat.applyAsDouble(current[key.ordinal()]);
+    }
+
+    private static Counter checks(MeterRegistry meterRegistry, String outcome) {
+        return Counter.builder("eduapp.teacher-keys.checks")
+                .description("Registration uniqueness checks, skipped when the filters rule out every value")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,159 @@
+package gr.aueb.cf.eduapp.service;
+
+import gr.aueb.cf.eduapp.core.NgramIndex;
+import gr.aueb.cf.eduapp.core.events.TeacherChangedEvent;
+import gr.aueb.cf.eduapp.dto.TeacherReadOnlyDTO;
+import gr.aueb.cf.eduapp.repository.TeacherRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Trigram index of the uuid, names, VAT and AMKA of every teacher, used to turn substring searches
+ * into a list of candidate ids that MySQL reads by primary key instead of scanning the table.
+ * Built in the background at startup and kept up to date after every committed insert or update
+ * on this node. Until it is built, or when a search matches too many teachers, searches run in the DB.
+ * Rows written on another node or directly in the DB only reach the index with the next rebuild, every
+ * {@code app.search.refresh-ms}: that is how long such a row can be missing from search results.
+ */
+@Component
+@Slf4j
+public class TeacherSearchIndex {
+
+    private final TeacherRepository teacherRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final int maxCandidates;
+
+    private volatile NgramIndex index;      // null until the first build completes
+    // Changes committed while a build reads the table, replayed onto the new index (guarded by this)
+    private final List<TeacherReadOnlyDTO> pending = new ArrayList<>();
+    private boolean building;
+    private final Object rebuildLock = new Object();
+
+    public TeacherSearchIndex(TeacherRepository teacherRepository,
+                              PlatformTransactionManager transactionManager,
+                              @Value("${app.search.enabled:true}") boolean enabled,
+                              @Value("${app.search.max-candidates:5000}") int maxCandidates) {
+        this.teacherRepository = teacherRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.enabled = enabled;
+        this.maxCandidates = maxCandidates;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildInBackground() {
+        if (!enabled) return;
+        Thread builder = new Thread(this::buildIfMissing, "teacher-search-index");
+        builder.setDaemon(true);
+        builder.start();
+    }
+
+    @Scheduled(initialDelayString = "${app.search.refresh-ms:300000}", fixedDelayString = "${app.search.refresh-ms:300000}")
+    public void rebuild() {
+        if (!enabled) return;
+        // One build at a time, a rebuild requested during the startup build runs after it
+        synchronized (rebuildLock) {
+            rebuildExclusively();
+        }
+    }
+
+    private void buildIfMissing() {
+        synchronized (rebuildLock) {
+            if (index == null) rebuildExclusively();        // unless a rebuild already ran before this thread
+        }
+    }
+
+    private void rebuildExclusively() {
+        synchronized (this) {
+            building = true;
+            pending.clear();
+        }
+
+        long start = System.nanoTime();
+        NgramIndex rebuilt = new NgramIndex();
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                try (Stream<TeacherReadOnlyDTO> teachers = teacherRepository.streamAllReadOnly()) {
+                    teachers.forEach(teacher -> put(rebuilt, teacher));
+                }
+            });
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                building = false;
+                pending.clear();
+            }
+            log.error("Teacher search index build failed, searches keep running in the DB", e);
+            return;
+        }
+
+        synchronized (this) {
+            pending.forEach(teacher -> put(rebuilt, teacher));
+            pending.clear();
+            building = false;
+            index = rebuilt;
+        }
+        log.info("Teacher search index built with {} teachers in {} ms", rebuilt.size(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    @TransactionalEventListener
+    public synchronized void onTeacherChanged(TeacherChangedEvent event) {
+        NgramIndex current = index;
+        if (current != null) put(current, event.teacher());
+        if (building) pending.add(event.teacher());
+    }
+
+    /**
+     * Ids of the teachers whose uuid, names, VAT or AMKA contain every non-blank text (ignoring case).
+     * Empty if the index can't narrow the search down: no text given, not built yet, or too many matches.
+     */
+    public Optional<List<Long>> candidates(String... texts) {
+        NgramIndex current = index;
+        if (current == null) return Optional.empty();
+
+        long[] candidates = null;
+        for (String text : texts) {
+            if (text == null || text.isBlank()) continue;
+
+            long[] matches = current.search(text, maxCandidates);
+            if (matches == null) continue;      // too broad, the DB predicate does the filtering
+            candidates = candidates == null ? matches : intersect(candidates, matches);
+        }
+        if (candidates == null) return Optional.empty();
+        return Optional.of(Arrays.stream(candidates).boxed().toList());
+    }
+
+    private static void put(NgramIndex index, TeacherReadOnlyDTO teacher) {
+        index.put(teacher.id(), teacher.uuid(),
+                teacher.userReadOnlyDTO().firstname(), teacher.userReadOnlyDTO().lastname(),
+                teacher.userReadOnlyDTO().vat(), teacher.personalInfoReadOnlyDTO().amka());
+    }
+
+    private static long[] intersect(long[] a, long[] b) {
+        long[] result = new long[Math.min(a.length, b.length)];
+        int i = 0, j = 0, count = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) i++;
+            else if (a[i] > b[j]) j++;
+            else {
+                result[count++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+}
@@ -1,37 +1,69 @@
 package gr.aueb.cf.eduapp.service;
 
+import gr.aueb.cf.eduapp.core.enums.CountMode;
+import gr.aueb.cf.eduapp.core.enums.Role;
+import gr.aueb.cf.eduapp.core.events.TeacherChangedEvent;
+import gr.aueb.cf.eduapp.core.events.TeacherKeysSavedEvent;
+import gr.aueb.cf.eduapp.core.events.UserPrincipalChangedEvent;
 import gr.aueb.cf.eduapp.core.exceptions.AppObjectAlreadyExists;
 import gr.aueb.cf.eduapp.core.exceptions.AppObjectInvalidArgumentException;
+import gr.aueb.cf.eduapp.core.exceptions.AppObjectNotAuthorizedException;
 import gr.aueb.cf.eduapp.core.exceptions.AppObjectNotFoundException;
+import gr.aueb.cf.eduapp.core.exceptions.AppObjectPreconditionFailedException;
+import gr.aueb.cf.eduapp.core.filters.KeysetCursor;
+import gr.aueb.cf.eduapp.core.filters.KeysetCursorSigner;
+import gr.aueb.cf.eduapp.core.filters.KeysetPage;
 import gr.aueb.cf.eduapp.core.filters.Paginated;
 import gr.aueb.cf.eduapp.core.filters.TeacherFilters;
-import gr.aueb.cf.eduapp.core.specifications.TeacherSpecification;
+import gr.aueb.cf.eduapp.core.filters.TotalCountCache;
+import gr.aueb.cf.eduapp.core.specifications.CompiledFilter;
+import gr.aueb.cf.eduapp.core.specifications.TeacherFilterQuery;
+import gr.aueb.cf.eduapp.dto.PasswordChangeDTO;
 import gr.aueb.cf.eduapp.dto.TeacherInsertDTO;
+import gr.aueb.cf.eduapp.dto.TeacherPatchDTO;
 import gr.aueb.cf.eduapp.dto.TeacherReadOnlyDTO;
 import gr.aueb.cf.eduapp.dto.TeacherUpdateDTO;
 import gr.aueb.cf.eduapp.mapper.Mapper;
 import gr.aueb.cf.eduapp.model.Attachment;
 import gr.aueb.cf.eduapp.model.PersonalInfo;
 import gr.aueb.cf.eduapp.model.Teacher;
+import gr.aueb.cf.eduapp.model.User;
 import gr.aueb.cf.eduapp.repository.PersonalInfoRepository;
 import gr.aueb.cf.eduapp.repository.TeacherRepository;
 import gr.aueb.cf.eduapp.repository.UserRepository;
-import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort;
-import org.springframework.data.jpa.domain.Specification;
+import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 
     /**
@@ -46,26 +78,43 @@ import java.util.UUID;
         private final UserRepository userRepository;
         private final PersonalInfoRepository personalInfoRepository;
         private final Mapper mapper;
+        private final ApplicationEventPublisher eventPublisher;
+        private final PasswordEncoder passwordEncoder;
+        private final TotalCountCache totalCountCache;
+        private final TeacherSearchIndex teacherSearchIndex;
+        private final TeacherCache teacherCache;
+        private final TeacherKeyFilters teacherKeyFilters;
+        private final KeysetCursorSigner keysetCursorSigner;
+        private final PlatformTransactionManager transactionManager;
+
+        // AppObjectAlreadyExists codes of the unique keys, in the order registration reports them
+        static final List<String> UNIQUE_KEY_CODES = List.of("VAT", "AMKA", "Username", "IdentityNumber");
+        private static final Map<String, String> UNIQUE_CONSTRAINT_CODES = Map.of(
+                User.UK_VAT, "VAT",
+                PersonalInfo.UK_AMKA, "AMKA",
+                User.UK_USERNAME, "Username",
+                PersonalInfo.UK_IDENTITY_NUMBER, "IdentityNumber");
 
         @Override
-        @Transactional(rollbackOn = Exception.class)
+        @Transactional(rollbackFor = Exception.class)
         public TeacherReadOnlyDTO saveTeacher(TeacherInsertDTO teacherInsertDTO, MultipartFile amkaFile)
-                throws AppObjectAlreadyExists, IOException {
-
-            if (userRepository.findByVat(teacherInsertDTO.userInsertDTO().vat()).isPresent()) {
-                throw new AppObjectAlreadyExists("VAT", "User with vat " + teacherInsertDTO.userInsertDTO().vat() + " already exists");
-            }
-
-            if (personalInfoRepository.findByAmka(teacherInsertDTO.personalInfoInsertDTO().amka()).isPresent()) {
-                throw new AppObjectAlreadyExists("AMKA", "User with AMKA " + teacherInsertDTO.personalInfoInsertDTO().amka() + " already exists");
-            }
-
-            if (userRepository.findByUsername(teacherInsertDTO.userInsertDTO().username()).isPresent()) {
-                throw new AppObjectAlreadyExists("Username", "User with username " + teacherInsertDTO.userInsertDTO().username() + " already exists");
-            }
-
-            if (personalInfoRepository.findByIdentityNumber(teacherInsertDTO.personalInfoInsertDTO().identityNumber()).isPresent()) {
-                throw new AppObjectAlreadyExists("IdentityNumber", "User with identity number " + teacherInsertDTO.personalInfoInsertDTO().identityNumber() + " already exists");
+                throws AppObjectAlreadyExists, IOException, AppObjectInvalidArgumentException {
+
+            requireRole(teacherInsertDTO.userInsertDTO().role());
+            requireRegistrableRole(teacherInsertDTO.userInsertDTO().role());
+
+            String vat = teacherInsertDTO.userInsertDTO().vat();
+            String amka = teacherInsertDTO.personalInfoInsertDTO().amka();
+            String username = teacherInsertDTO.userInsertDTO().username();
+            String identityNumber = teacherInsertDTO.personalInfoInsertDTO().identityNumber();
+
+            // Values the filters rule out skip the query. Otherwise all four unique keys in a single query,
+            // reported in the order they used to be checked
+            if (teacherKeyFilters.mightBeTaken(vat, amka, username, identityNumber)) {
+                List<String> takenKeys = teacherRepository.findTakenUniqueKeys(vat, amka, username, identityNumber);
+                for (String code : UNIQUE_KEY_CODES) {
+                    if (takenKeys.contains(code)) throw alreadyExists(code, vat, amka, username, identityNumber);
+                }
             }
 
             Teacher teacher = mapper.mapToTeacherEntity(teacherInsertDTO);
@@ -74,25 +123,42 @@ import java.util.UUID;
                 saveAmkaFile(teacher.getPersonalInfo(), amkaFile);
             }
 
-            // Saves teacher (cascades to User and PersonalInfo)
-            Teacher savedTeacher = teacherRepository.save(teacher);
+            // Saves teacher (cascades to User and PersonalInfo), flushed so that the inserts run here.
+            // A concurrent registration with the same keys is caught by the unique constraints.
+            Teacher savedTeacher;
+            try {
+                savedTeacher = teacherRepository.saveAndFlush(teacher);
+            } catch (DataIntegrityViolationException e) {
+                String code = violatedUniqueKey(e);
+                if (code == null) code = takenUniqueKey(vat, amka, username, identityNumber);
+                if (code == null) throw e;
+                throw alreadyExists(code, vat, amka, username, identityNumber);
+            }
+            TeacherReadOnlyDTO savedTeacherDTO = mapper.mapToTeacherReadOnlyDTO(savedTeacher);
+            eventPublisher.publishEvent(new TeacherChangedEvent(savedTeacherDTO));
+            eventPublisher.publishEvent(new TeacherKeysSavedEvent(vat, amka, username, identityNumber));
             log.info("Teacher with amka={} saved.", teacherInsertDTO.personalInfoInsertDTO().amka());
-            return mapper.mapToTeacherReadOnlyDTO(savedTeacher);
+            return savedTeacherDTO;
         }
 
 
 
         @Override
-        @Transactional(rollbackOn = Exception.class)
-        public TeacherReadOnlyDTO updateTeacher(TeacherUpdateDTO teacherUpdateDTO, MultipartFile amkaFile)
-                throws AppObjectAlreadyExists, IOException, AppObjectNotFoundException {
+        @Transactional(rollbackFor = Exception.class)
+        public TeacherReadOnlyDTO updateTeacher(TeacherUpdateDTO teacherUpdateDTO, MultipartFile amkaFile, Long expectedVersion)
+                throws AppObjectAlreadyExists, IOException, AppObjectNotFoundException, AppObjectPreconditionFailedException,
+                AppObjectInvalidArgumentException {
 
-            if (teacherRepository.findById(teacherUpdateDTO.id()).isEmpty()) {
-                throw new AppObjectNotFoundException("Teacher", "Teacher with id " + teacherUpdateDTO.id() + " not found");
-            }
+            requireRole(teacherUpdateDTO.userUpdateDTO().role());
 
-            Teacher existingTeacher = teacherRepository.findById(teacherUpdateDTO.id()).orElse(null);
-            if (existingTeacher == null) throw new AppObjectNotFoundException("Teacher", "Teacher with id=" + teacherUpdateDTO.id() + " not found");
+            Teacher existingTeacher = teacherRepository.findById(teacherUpdateDTO.id())
+                    .orElseThrow(() -> new AppObjectNotFoundException("Teacher", "Teacher with id " + teacherUpdateDTO.id() + " not found"));
+
+            // If-Match: the client updates the version it has read, or nothing
+            if (expectedVersion != null && !expectedVersion.equals(existingTeacher.getVersion())) {
+                throw new AppObjectPreconditionFailedException("Teacher", "Teacher with id=" + teacherUpdateDTO.id()
+                        + " was modified, current version is " + existingTeacher.getVersion());
+            }
 
             if (!existingTeacher.getUser().getVat().equals(teacherUpdateDTO.userUpdateDTO().vat()) &&
                     userRepository.findByVat(teacherUpdateDTO.userUpdateDTO().vat()).isPresent()) {
@@ -104,47 +170,370 @@ import java.util.UUID;
                 throw new AppObjectAlreadyExists("Teacher", "Teacher with identity number " + teacherUpdateDTO.personalInfoUpdateDTO().identityNumber() + " already exists");
             }
 
+            // A role, active flag or username change revokes the tokens issued so far
+            User existingUser = existingTeacher.getUser();
+            String existingUsername = existingUser.getUsername();
+            boolean principalChanged = existingUser.getRole() != teacherUpdateDTO.userUpdateDTO().role()
+                    || !Objects.equals(existingUser.getIsActive(), teacherUpdateDTO.isActive())
+                    || !Objects.equals(existingUsername, teacherUpdateDTO.userUpdateDTO().username());
+            int tokenEpoch = existingUser.getCurrentTokenEpoch() + (principalChanged ? 1 : 0);
+
             Teacher teacherToUpdate = mapper.mapToTeacherEntity(teacherUpdateDTO);
+            // Merging checks the version read above, so an update committed in between fails instead of being overwritten.
+            // The teacher row is touched on every update, also when only its user or personal info changed,
+            // so that its version (the ETag) and updatedAt (Last-Modified) always move.
+            teacherToUpdate.setVersion(existingTeacher.getVersion());
+            teacherToUpdate.setCreatedAt(existingTeacher.getCreatedAt());
+            teacherToUpdate.setUpdatedAt(LocalDateTime.now());
+            teacherToUpdate.getUser().setTokenEpoch(tokenEpoch);
+            // Profile updates never touch the password, keep the stored hash (see changePassword)
+            teacherToUpdate.getUser().setPassword(existingUser.getPassword());
             if (amkaFile != null && !amkaFile.isEmpty()) {
                 Files.deleteIfExists(Paths.get(existingTeacher.getPersonalInfo().getAmkaFile().getFilePath()));
                 saveAmkaFile(teacherToUpdate.getPersonalInfo(), amkaFile);
             }
 
             // Saves teacher (cascades to User and PersonalInfo)
-            Teacher updatedTeacher = teacherRepository.save(teacherToUpdate);
+            // Flushed so that the returned version is the one the update was written with
+            Teacher updatedTeacher = teacherRepository.saveAndFlush(teacherToUpdate);
+            TeacherReadOnlyDTO updatedTeacherDTO = mapper.mapToTeacherReadOnlyDTO(updatedTeacher);
+            if (principalChanged) {
+                eventPublisher.publishEvent(new UserPrincipalChangedEvent(existingUser.getId(), existingUsername, tokenEpoch));
+            }
+            eventPublisher.publishEvent(new TeacherChangedEvent(updatedTeacherDTO));
+            eventPublisher.publishEvent(new TeacherKeysSavedEvent(teacherUpdateDTO.userUpdateDTO().vat(),
+                    teacherUpdateDTO.personalInfoUpdateDTO().amka(), teacherUpdateDTO.userUpdateDTO().username(),
+                    teacherUpdateDTO.personalInfoUpdateDTO().identityNumber()));
             log.info("Teacher with id={} saved.", teacherUpdateDTO.personalInfoUpdateDTO().id());
-            return mapper.mapToTeacherReadOnlyDTO(updatedTeacher);
+            return updatedTeacherDTO;
         }
 
         @Override
+        @Transactional(rollbackFor = Exception.class)
+        public TeacherReadOnlyDTO patchTeacher(String uuid, TeacherPatchDTO teacherPatchDTO, Long expectedVersion,
+                                               String username, boolean superAdmin)
+                throws AppObjectAlreadyExists, AppObjectNotFoundException, AppObjectPreconditionFailedException,
+                AppObjectNotAuthorizedException {
+
+            // One statement for the whole aggregate, the changes below are dirty-checked on the managed entities
+            Teacher teacher = teacherRepository.findAggregateByUuid(uuid)
+                    .orElseThrow(() -> new AppObjectNotFoundException("Teacher", "Teacher with uuid:" + uuid + " not found"));
+
+            // isActive and the keys of another teacher are not theirs to change (deactivating also logs them out)
+            if (!superAdmin && !teacher.getUser().getUsername().equals(username)) {
+                throw new AppObjectNotAuthorizedException("Teacher", "User " + username + " cannot patch teacher with uuid:" + uuid);
+            }
+
+            if (expectedVersion != null && !expectedVersion.equals(teacher.getVersion())) {
+                throw new AppObjectPreconditionFailedException("Teacher", "Teacher with uuid=" + uuid
+                        + " was modified, current version is " + teacher.getVersion());
+            }
+
+            User user = teacher.getUser();
+            PersonalInfo personalInfo = teacher.getPersonalInfo();
+
+            // Only the unique keys that change are checked
+            String vat = newKey(teacherPatchDTO.vat(), user.getVat());
+            String amka = newKey(teacherPatchDTO.amka(), personalInfo.getAmka());
+            String identityNumber = newKey(teacherPatchDTO.identityNumber(), personalInfo.getIdentityNumber());
+            if ((vat != null || amka != null || identityNumber != null)
+                    && teacherKeyFilters.mightBeTaken(vat, amka, null, identityNumber)) {
+                List<String> takenKeys = teacherRepository.findTakenUniqueKeys(vat, amka, null, identityNumber);
+                for (String code : UNIQUE_KEY_CODES) {
+                    if (takenKeys.contains(code)) throw alreadyExists(code, vat, amka, null, identityNumber);
+                }
+            }
+
+            boolean activeChanged = patch(teacherPatchDTO.isActive(), teacher::getIsActive, teacher::setIsActive);
+            boolean changed = activeChanged;
+            changed |= patch(teacherPatchDTO.firstname(), user::getFirstname, user::setFirstname);
+            changed |= patch(teacherPatchDTO.lastname(), user::getLastname, user::setLastname);
+            changed |= patch(teacherPatchDTO.vat(), user::getVat, user::setVat);
+            changed |= patch(teacherPatchDTO.fatherName(), user::getFatherName, user::setFatherName);
+            changed |= patch(teacherPatchDTO.fatherLastname(), user::getFatherLastname, user::setFatherLastname);
+            changed |= patch(teacherPatchDTO.motherName(), user::getMotherName, user::setMotherName);
+            changed |= patch(teacherPatchDTO.motherLastname(), user::getMotherLastname, user::setMotherLastname);
+            changed |= patch(teacherPatchDTO.dateOfBirth(), user::getDateOfBirth, user::setDateOfBirth);
+            changed |= patch(teacherPatchDTO.gender(), user::getGender, user::setGender);
+            changed |= patch(teacherPatchDTO.amka(), personalInfo::getAmka, personalInfo::setAmka);
+            changed |= patch(teacherPatchDTO.identityNumber(), personalInfo::getIdentityNumber, personalInfo::setIdentityNumber);
+            changed |= patch(teacherPatchDTO.placeOfBirth(), personalInfo::getPlaceOfBirth, personalInfo::setPlaceOfBirth);
+            changed |= patch(teacherPatchDTO.municipalityOfRegistration(), personalInfo::getMunicipalityOfRegistration,
+                    personalInfo::setMunicipalityOfRegistration);
+
+            if (!changed) return mapper.mapToTeacherReadOnlyDTO(teacher);
+
+            // As in updateTeacher: the user follows the active flag, which revokes the tokens issued so far
+            if (activeChanged) {
+                user.setIsActive(teacherPatchDTO.isActive());
+                user.setTokenEpoch(user.getCurrentTokenEpoch() + 1);
+            }
+            // The teacher row moves on every change, so that its version (the ETag) and updatedAt do
+            teacher.setUpdatedAt(LocalDateTime.now());
+
+            // Flushed so that the returned version is the one written, only the changed columns are updated
+            try {
+                teacherRepository.flush();
+            } catch (DataIntegrityViolationException e) {
+                String code = violatedUniqueKey(e);
+                if (code == null) code = takenUniqueKey(vat, amka, null, identityNumber);
+                if (code == null) throw e;
+                throw alreadyExists(code, vat, amka, null, identityNumber);
+            }
+
+            TeacherReadOnlyDTO patchedTeacherDTO = mapper.mapToTeacherReadOnlyDTO(teacher);
+            if (activeChanged) {
+                eventPublisher.publishEvent(new UserPrincipalChangedEvent(user.getId(), user.getUsername(), user.getCurrentTokenEpoch()));
+            }
+            eventPublisher.publishEvent(new TeacherChangedEvent(patchedTeacherDTO));
+            if (vat != null || amka != null || identityNumber != null) {
+                eventPublisher.publishEvent(new TeacherKeysSavedEvent(user.getVat(), personalInfo.getAmka(),
+                        user.getUsername(), personalInfo.getIdentityNumber()));
+            }
+            log.info("Teacher with uuid={} patched.", uuid);
+            return patchedTeacherDTO;
+        }
+
+        @Override
+        @Transactional(rollbackFor = Exception.class)
+        public void changePassword(String uuid, PasswordChangeDTO passwordChangeDTO, String username)
+                throws AppObjectNotFoundException, AppObjectNotAuthorizedException, AppObjectInvalidArgumentException {
+
+            Teacher teacher = teacherRepository.findByUuid(uuid)
+                    .orElseThrow(() -> new AppObjectNotFoundException("Teacher", "Teacher with uuid:" + uuid + " not found"));
+            User user = teacher.getUser();
+
+            if (!user.getUsername().equals(username)) {
+                throw new AppObjectNotAuthorizedException("Teacher", "User " + username + " cannot change the password of teacher with uuid:" + uuid);
+            }
+
+            // One verification of the old password and one hash of the new one
+            if (!passwordEncoder.matches(passwordChangeDTO.oldPassword(), user.getPassword())) {
+                throw new AppObjectInvalidArgumentException("Password", "Old password is incorrect");
+            }
+            user.setPassword(passwordEncoder.encode(passwordChangeDTO.newPassword()));
+
+            // Cached principals hold the old hash
+            eventPublisher.publishEvent(new UserPrincipalChangedEvent(user.getId(), user.getUsername(), user.getCurrentTokenEpoch()));
+            log.info("Password of teacher with uuid={} changed.", uuid);
+        }
+
+        @Override
+        @Transactional(readOnly = true)
         public TeacherReadOnlyDTO getOneTeacher(String uuid) throws AppObjectNotFoundException {
-            return teacherRepository
-                    .findByUuid(uuid)
+            // Read-through, misses are not cached so that a teacher saved later is found
+            TeacherReadOnlyDTO teacher = teacherCache.get(uuid, key -> teacherRepository
+                    .findByUuid(key)
                     .map(mapper::mapToTeacherReadOnlyDTO)
-                    .orElseThrow(() ->
-                            new AppObjectNotFoundException("Teacher", "Teacher with uuid:" + uuid + " not found"));
+                    .orElse(null));
+            if (teacher == null) {
+                throw new AppObjectNotFoundException("Teacher", "Teacher with uuid:" + uuid + " not found");
+            }
+            return teacher;
         }
 
         @Override
 //    public Page<TeacherReadOnlyDTO> getPaginatedTeachers(int page, int size) {
-        public Paginated<TeacherReadOnlyDTO> getPaginatedTeachers(int page, int size) {
+        @Transactional(readOnly = true)
+        public Paginated<TeacherReadOnlyDTO> getPaginatedTeachers(int page, int size, String cursor, CountMode countMode)
+                throws AppObjectInvalidArgumentException {
             String defaultSort = "id";
+            if (cursor != null) {
+                log.debug("Keyset page of teachers was returned successfully with size={}", size);
+                return getKeysetPage(CompiledFilter.NONE, defaultSort, Sort.Direction.ASC, cursor, size);
+            }
+
             Pageable pageable = PageRequest.of(page, size, Sort.by(defaultSort).ascending());
             log.debug("Paginated teachers were returned successfully with page={} and size={}", page, size);
 //        return teacherRepository.findAll(pageable).map(mapper::mapToTeacherReadOnlyDTO);
-            var paginatedTeachers = teacherRepository.findAll(pageable);
-            return Paginated.fromPage(paginatedTeachers.map(mapper::mapToTeacherReadOnlyDTO));
+            // Projection straight into DTOs, one statement for the page whatever its size
+            return getPage(CompiledFilter.NONE, pageable, countMode, "teachers:all");
         }
 
         @Override
-        public Paginated<TeacherReadOnlyDTO> getTeachersFilteredPaginated(TeacherFilters teacherFilters) {
-            var filtered = teacherRepository.findAll(getSpecsFromFilters(teacherFilters), teacherFilters.getPageable());
+        @Transactional(readOnly = true)
+        public Paginated<TeacherReadOnlyDTO> getTeachersFilteredPaginated(TeacherFilters teacherFilters)
+                throws AppObjectInvalidArgumentException {
+            // Joins and predicates only for the filters that are set, built once per combination of them
+            CompiledFilter filter = TeacherFilterQuery.INSTANCE.compile(teacherFilters);
+            // The compiled predicate and its values key the total, whatever the page
+            String countKey = "teachers:" + filter.predicate() + filter.parameters();
+
+            filter = withSearchCandidates(filter, teacherFilters);
+            if (teacherFilters.isKeysetMode()) {
+                log.debug("Filtered keyset page of teachers was returned successfully with size={}", teacherFilters.getPageSize());
+                return getKeysetPage(filter, teacherFilters.getSortBy(),
+                        teacherFilters.getSortDirection(), teacherFilters.getCursor(), teacherFilters.getPageSize());
+            }
+
+            var filtered = getPage(filter, teacherFilters.getPageable(), teacherFilters.getCountMode(), countKey);
             log.debug("Filtered and paginated teachers were returned successfully with page={} and size={}", teacherFilters.getPage(),
                     teacherFilters.getPageSize());
 //        return new Paginated<>(filtered.map(mapper::mapToTeacherReadOnlyDTO));
-            return Paginated.fromPage(filtered.map(mapper::mapToTeacherReadOnlyDTO));
+            return filtered;
+        }
+
+        @Override
+        @Transactional(readOnly = true)
+        public long exportTeachers(TeacherFilters teacherFilters, Consumer<TeacherReadOnlyDTO> consumer)
+                throws AppObjectInvalidArgumentException {
+            CompiledFilter filter = withSearchCandidates(TeacherFilterQuery.INSTANCE.compile(teacherFilters), teacherFilters);
+            // Ties broken on id, as in the pages, so the order is stable
+            requireSortable(teacherFilters.getSort());
+            Sort sort = teacherFilters.getSort();
+            if (!"id".equals(teacherFilters.getSortBy())) sort = sort.and(Sort.by(teacherFilters.getSortDirection(), "id"));
+
+            // Rows are mapped and handed over one at a time, the heap holds at most a fetch-size chunk of them
+            long exported = 0;
+            try (Stream<TeacherReadOnlyDTO> teachers = teacherRepository.streamReadOnly(filter, sort)) {
+                Iterator<TeacherReadOnlyDTO> iterator = teachers.iterator();
+                while (iterator.hasNext()) {
+                    consumer.accept(iterator.next());
+                    exported++;
+                }
+            } catch (IllegalArgumentException e) {
+                if (exported > 0) throw e;
+                throw new AppObjectInvalidArgumentException("SortBy", "Cannot sort on " + sort + ": " + e.getMessage());
+            }
+            log.debug("Filtered teachers were exported successfully, count={}", exported);
+            return exported;
+        }
+
+        // Substring searches are resolved to candidate ids in memory, so MySQL reads those rows
+        // by primary key instead of scanning for LIKE '%x%'. The LIKE predicates stay, on those rows only.
+        private CompiledFilter withSearchCandidates(CompiledFilter filter, TeacherFilters teacherFilters) {
+            Optional<List<Long>> candidates = teacherSearchIndex.candidates(teacherFilters.getQuery(), teacherFilters.getUuid());
+            if (candidates.isEmpty()) return filter;
+            return candidates.get().isEmpty()
+                    ? filter.and("1 = 0", Map.of())
+                    : filter.and(TeacherFilterQuery.INSTANCE.path("id") + " in :candidateIds", Map.of("candidateIds", candidates.get()));
+        }
+
+        private Paginated<TeacherReadOnlyDTO> getPage(CompiledFilter filter, Pageable pageable,
+                                                      CountMode countMode, String countKey)
+                throws AppObjectInvalidArgumentException {
+            requireSortable(pageable.getSort());
+            try {
+                return getPageUnchecked(filter, pageable, countMode, countKey);
+            } catch (IllegalArgumentException e) {
+                throw new AppObjectInvalidArgumentException("SortBy", "Cannot sort on " + pageable.getSort() + ": " + e.getMessage());
+            }
+        }
+
+        private Paginated<TeacherReadOnlyDTO> getPageUnchecked(CompiledFilter filter, Pageable pageable,
+                                                               CountMode countMode, String countKey) {
+            if (countMode == CountMode.EXACT) {
+                return Paginated.fromPage(teacherRepository.findAllReadOnly(filter, pageable));
+            }
+
+            // No COUNT(*) on the page itself, one extra row tells whether there is a next page
+            Slice<TeacherReadOnlyDTO> slice = teacherRepository.findSliceReadOnly(filter, pageable);
+            if (countMode == CountMode.NONE) return Paginated.fromSlice(slice, null);
+            long seen = pageable.getOffset() + slice.getNumberOfElements();
+            long total;
+            if (!slice.hasNext() && (slice.hasContent() || pageable.getOffset() == 0)) {
+                total = seen;       // the last page tells the exact total, refresh the cached one for free
+                totalCountCache.put(countKey, total);
+            } else {
+                total = totalCountCache.get(countKey, () -> teacherRepository.countReadOnly(filter));
+                // A stale total must not contradict the page itself
+                total = Math.max(total, seen + (slice.hasNext() ? 1 : 0));
+            }
+            return Paginated.fromSlice(slice, total);
+        }
+
+        // Seeks past the last row of the previous page on (sortBy, id), so every page costs the same
+        private Paginated<TeacherReadOnlyDTO> getKeysetPage(CompiledFilter filter, String sortBy,
+                                                            Sort.Direction direction, String cursor, int size)
+                throws AppObjectInvalidArgumentException {
+            requireSortable(Sort.by(direction, sortBy));
+            // Only cursors this server signed are decoded, their sort key and last value can be trusted
+            KeysetCursor after = KeysetCursor.decode(keysetCursorSigner.verify(cursor), sortBy, direction);
+            try {
+                var keysetPage = teacherRepository.findAllReadOnly(filter, sortBy, direction, after, size);
+                return Paginated.fromKeysetPage(new KeysetPage<>(keysetPage.content(),
+                        keysetCursorSigner.sign(keysetPage.nextCursor())), size);
+            } catch (IllegalArgumentException e) {
+                throw new AppObjectInvalidArgumentException("Cursor", "Cannot seek on " + sortBy + ": " + e.getMessage());
+            }
+        }
+
+
+        private static void requireSortable(Sort sort) throws AppObjectInvalidArgumentException {
+            for (Sort.Order order : sort) {
+                if (!TeacherFilterQuery.SORTABLE.contains(order.getProperty())) {
+                    throw new AppObjectInvalidArgumentException("SortBy", "Cannot sort on " + order.getProperty()
+                            + ", sortable attributes are " + TeacherFilterQuery.SORTABLE);
+                }
+            }
+        }
+
+        static AppObjectAlreadyExists alreadyExists(String code, String vat, String amka, String username,
+                                                    String identityNumber) {
+            return switch (code) {
+                case "VAT" -> new AppObjectAlreadyExists(code, "User with vat " + vat + " already exists");
+                case "AMKA" -> new AppObjectAlreadyExists(code, "User with AMKA " + amka + " already exists");
+                case "Username" -> new AppObjectAlreadyExists(code, "User with username " + username + " already exists");
+                default -> new AppObjectAlreadyExists(code, "User with identity number " + identityNumber + " already exists");
+            };
+        }
+
+        // The role ends up in the authorities and the token claims, a user cannot be saved without one
+        private static void requireRole(Role role) throws AppObjectInvalidArgumentException {
+            if (role == null) throw new AppObjectInvalidArgumentException("Role", "Role is required");
+        }
+
+        // Registration is open to anyone, while SUPER_ADMIN guards the actuator and the bulk import
+        private static void requireRegistrableRole(Role role) throws AppObjectInvalidArgumentException {
+            if (role == Role.SUPER_ADMIN) {
+                throw new AppObjectInvalidArgumentException("Role", "Role " + role + " cannot be registered");
+            }
+        }
+
+        // Sets the value if given and different, telling whether it did
+        private static <T> boolean patch(T value, Supplier<T> getter, Consumer<T> setter) {
+            if (value == null || value.equals(getter.get())) return false;
+            setter.accept(value);
+            return true;
+        }
+
+        // The new value of a unique key, null if it is not changing
+        private static String newKey(String value, String current) {
+            return value == null || value.equals(current) ? null : value;
+        }
+
+        /**
+         * Fallback for a violation whose constraint is not recognised, e.g. on a schema created before the unique
+         * constraints were named, where they keep their generated names. Asks the DB which key is taken, in a new
+         * transaction: the current one is failed, and its snapshot may predate the row that won the race.
+         */
+        private String takenUniqueKey(String vat, String amka, String username, String identityNumber) {
+            TransactionTemplate freshTransaction = new TransactionTemplate(transactionManager);
+            freshTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+            List<String> takenKeys = freshTransaction.execute(status ->
+                    teacherRepository.findTakenUniqueKeys(vat, amka, username, identityNumber));
+            return firstTakenKey(takenKeys);
         }
 
+        // The first of the taken keys in the order registration reports them, null if none is taken
+        static String firstTakenKey(List<String> takenKeys) {
+            if (takenKeys == null) return null;
+            return UNIQUE_KEY_CODES.stream().filter(takenKeys::contains).findFirst().orElse(null);
+        }
+
+        // Drivers report the name with extra parts (e.g. "users.uk_users_vat" on MySQL, upper case on H2)
+        static String violatedUniqueKey(DataIntegrityViolationException e) {
+            Throwable cause = e;
+            while (cause != null && !(cause instanceof ConstraintViolationException)) cause = cause.getCause();
+            if (cause == null || ((ConstraintViolationException) cause).getConstraintName() == null) return null;
+
+            String constraintName = ((ConstraintViolationException) cause).getConstraintName().toLowerCase(Locale.ROOT);
+            return UNIQUE_CONSTRAINT_CODES.entrySet().stream()
+                    .filter(entry -> constraintName.contains(entry.getKey()))
+                    .map(Map.Entry::getValue)
+                    .findFirst()
+                    .orElse(null);
+        }
 
         private void saveAmkaFile(PersonalInfo personalInfo, MultipartFile amkaFile)
                 throws IOException {
@@ -177,11 +566,4 @@ import java.util.UUID;
             return "";
         }
 
-
-        private Specification<Teacher> getSpecsFromFilters(TeacherFilters teacherFilters) {
-            return TeacherSpecification.trStringFieldLike("uuid", teacherFilters.getUuid())
-                    .and(TeacherSpecification.teacherUserVatIs(teacherFilters.getUserVat()))
-                    .and(TeacherSpecification.trPersonalInfoAmkaIs(teacherFilters.getUserAmka()))
-                    .and(TeacherSpecification.trUserIsActive(teacherFilters.getActive()));
-        }
     }
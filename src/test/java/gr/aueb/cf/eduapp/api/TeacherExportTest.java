@@ -0,0 +1,89 @@
+package gr.aueb.cf.eduapp.api;
+
+import gr.aueb.cf.eduapp.core.enums.GenderType;
+import gr.aueb.cf.eduapp.core.enums.Role;
+import gr.aueb.cf.eduapp.dto.PersonalInfoInsertDTO;
+import gr.aueb.cf.eduapp.dto.TeacherInsertDTO;
+import gr.aueb.cf.eduapp.dto.UserInsertDTO;
+import gr.aueb.cf.eduapp.service.ITeacherService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * The export picks its format from the Accept header, NDJSON unless CSV is asked for.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@Transactional
+@WithMockUser(roles = "TEACHER")        // the /api/teachers/** rule matches on roles
+class TeacherExportTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ITeacherService teacherService;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        UserInsertDTO user = new UserInsertDTO("=1+2", "Export", "export@aueb.gr", "Passw0rd!", "500000001",
+                "Father", "Fatherlastname", "Mother", "Motherlastname", LocalDate.of(1990, 1, 1), GenderType.FEMALE, Role.TEACHER);
+        teacherService.saveTeacher(new TeacherInsertDTO(true, user,
+                new PersonalInfoInsertDTO("60000000001", "EXP000001", "Athens", "Athens")), null);
+    }
+
+    @Test
+    void exportsNdjsonWithoutAnAcceptHeader() throws Exception {
+        mockMvc.perform(post("/api/teachers/export"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith("application/x-ndjson"))
+                .andExpect(header().string(HttpHeaders.VARY, containsString(HttpHeaders.ACCEPT)))
+                .andExpect(content().string(containsString("\"vat\":\"500000001\"")));
+    }
+
+    @Test
+    void exportsNdjsonForAnyMediaType() throws Exception {
+        mockMvc.perform(post("/api/teachers/export").header(HttpHeaders.ACCEPT, "*/*"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith("application/x-ndjson"));
+    }
+
+    @Test
+    void exportsCsvWhenPreferred() throws Exception {
+        mockMvc.perform(post("/api/teachers/export").header(HttpHeaders.ACCEPT, "application/x-ndjson;q=0.5, text/csv"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith("text/csv"))
+                .andExpect(content().string(containsString("id,uuid,isActive,firstname,lastname,vat,amka,identityNumber\n")))
+                .andExpect(content().string(containsString(",'=1+2,Export,500000001,")));
+    }
+
+    @Test
+    void otherMediaTypesAreNotAcceptable() throws Exception {
+        mockMvc.perform(post("/api/teachers/export").header(HttpHeaders.ACCEPT, "application/json"))
+                .andExpect(status().isNotAcceptable());
+    }
+
+    @Test
+    void csvCellsThatSpreadsheetsEvaluateArePrefixed() {
+        assertEquals("'=SUM(A1),'+1,'-1,'@A1,'\tx,\"'\rx\",plain,a-b,",
+                TeacherRestController.csvRow("=SUM(A1)", "+1", "-1", "@A1", "\tx", "\rx", "plain", "a-b", null));
+    }
+}
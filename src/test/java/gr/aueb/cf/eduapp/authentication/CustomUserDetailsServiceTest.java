@@ -0,0 +1,86 @@
+package gr.aueb.cf.eduapp.authentication;
+
+import gr.aueb.cf.eduapp.core.enums.GenderType;
+import gr.aueb.cf.eduapp.core.enums.Role;
+import gr.aueb.cf.eduapp.core.jdbc.StatementCountingBeanPostProcessor;
+import gr.aueb.cf.eduapp.model.User;
+import gr.aueb.cf.eduapp.repository.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.Duration;
+import java.time.LocalDate;
+
+import static gr.aueb.cf.eduapp.core.jdbc.SqlStatements.assertStatements;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@Import(StatementCountingBeanPostProcessor.class)
+class CustomUserDetailsServiceTest {
+
+    private static final String USERNAME = "teacher@aueb.gr";
+    private static final String PASSWORD = "Passw0rd!";
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private final PasswordEncoder passwordEncoder = new BCryptPasswordEncoder(4);
+    private DaoAuthenticationProvider authenticationProvider;
+
+    @BeforeEach
+    void setUp() {
+        User user = new User();
+        user.setUsername(USERNAME);
+        user.setPassword(passwordEncoder.encode(PASSWORD));
+        user.setFirstname("Anna");
+        user.setLastname("Papadopoulou");
+        user.setVat("123456789");
+        user.setDateOfBirth(LocalDate.of(1990, 1, 1));
+        user.setGender(GenderType.FEMALE);
+        user.setRole(Role.TEACHER);
+        user.setIsActive(true);
+        entityManager.persistAndFlush(user);
+        entityManager.clear();
+
+        // Cache disabled, every authentication goes to the DB
+        PrincipalCache principalCache = new PrincipalCache(false, 100, Duration.ofMinutes(1), new SimpleMeterRegistry());
+        authenticationProvider = new DaoAuthenticationProvider(new CustomUserDetailsService(userRepository, principalCache));
+        authenticationProvider.setPasswordEncoder(passwordEncoder);
+    }
+
+    @Test
+    void authenticationRunsExactlyOneStatement() throws Exception {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        Authentication authentication = assertStatements(1, () -> authenticationProvider.authenticate(
+                new UsernamePasswordAuthenticationToken(USERNAME, PASSWORD)));
+
+        assertEquals(1, statistics.getPrepareStatementCount());
+        UserPrincipal principal = assertInstanceOf(UserPrincipal.class, authentication.getPrincipal());
+        assertEquals(Role.TEACHER, principal.getRole());
+        assertEquals("Anna", principal.getFirstname());
+    }
+}
@@ -0,0 +1,76 @@
+package gr.aueb.cf.eduapp.authentication;
+
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * A single parse verifies the signature and the expiration of a token, and a token
+ * verified once is served from {@link VerifiedTokenCache} without being parsed again.
+ */
+class JwtServiceTest {
+
+    private static final String SECRET = "5ce98d378ec88ea09ba8bcd511ef23645f04cc8e70b9134b98723a53c275bbc5";
+
+    private JwtService jwtService;
+    private String token;
+
+    @BeforeEach
+    void setUp() {
+        jwtService = new JwtService();
+        ReflectionTestUtils.setField(jwtService, "secretKey", SECRET);
+        ReflectionTestUtils.setField(jwtService, "jwtExpiration", 10_800_000L);
+        jwtService.init();
+        token = jwtService.generateToken(1L, "teacher@aueb.gr", "TEACHER", 0);
+    }
+
+    @Test
+    void validateTokenReturnsClaims() {
+        TokenClaims claims = jwtService.validateToken(token);
+
+        assertEquals(1L, claims.userId());
+        assertEquals("teacher@aueb.gr", claims.subject());
+        assertEquals("TEACHER", claims.role());
+        assertFalse(claims.isExpired(new Date().toInstant()));
+    }
+
+    @Test
+    void validateTokenRejectsATamperedSignature() {
+        String tampered = token.substring(0, token.length() - 2) + (token.endsWith("AA") ? "BB" : "AA");
+
+        assertThrows(JwtException.class, () -> jwtService.validateToken(tampered));
+    }
+
+    @Test
+    void validateTokenRejectsAnExpiredToken() {
+        ReflectionTestUtils.setField(jwtService, "jwtExpiration", -1_000L);
+        String expired = jwtService.generateToken(1L, "teacher@aueb.gr", "TEACHER", 0);
+
+        assertThrows(ExpiredJwtException.class, () -> jwtService.validateToken(expired));
+    }
+
+    @Test
+    void verifiedTokenIsNotParsedAgain() {
+        JwtService parser = spy(jwtService);
+        VerifiedTokenCache cache = new VerifiedTokenCache(parser, true, 100, new SimpleMeterRegistry());
+
+        TokenClaims first = cache.validate(token);
+        TokenClaims second = cache.validate(token);
+
+        assertSame(first, second);
+        verify(parser, times(1)).validateToken(token);
+    }
+}
@@ -0,0 +1,51 @@
+package gr.aueb.cf.eduapp.authentication;
+
+import gr.aueb.cf.eduapp.core.events.UserPrincipalChangedEvent;
+import gr.aueb.cf.eduapp.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Epochs are keyed by user id, so the tokens issued to a username are revoked after it changes,
+ * on the node that made the change and on the nodes (or restarts) that only see the DB.
+ */
+class TokenEpochRegistryTest {
+
+    private static final long USER_ID = 7L;
+
+    private final UserRepository userRepository = mock(UserRepository.class);
+
+    @Test
+    void usernameChangeRevokesTheTokensOfTheOldUsernameLocally() {
+        TokenEpochRegistry registry = new TokenEpochRegistry(userRepository);
+        assertTrue(registry.isCurrent(USER_ID, 0));
+
+        registry.onUserPrincipalChanged(new UserPrincipalChangedEvent(USER_ID, "old@aueb.gr", 1));
+
+        assertFalse(registry.isCurrent(USER_ID, 0));
+        assertTrue(registry.isCurrent(USER_ID, 1));
+    }
+
+    @Test
+    void otherNodesLearnTheRaisedEpochFromTheDb() {
+        // The row now holds the new username, the old one is nowhere in the DB
+        when(userRepository.findRaisedTokenEpochs()).thenReturn(List.of(new TokenEpoch(USER_ID, 1)));
+        TokenEpochRegistry otherNode = new TokenEpochRegistry(userRepository);
+
+        otherNode.refresh();
+
+        assertFalse(otherNode.isCurrent(USER_ID, 0));
+        assertTrue(otherNode.isCurrent(USER_ID, 1));
+    }
+
+    @Test
+    void tokensWithoutAUserIdAreNeverCurrent() {
+        assertFalse(new TokenEpochRegistry(userRepository).isCurrent(null, 0));
+    }
+}
@@ -0,0 +1,46 @@
+package gr.aueb.cf.eduapp.core;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ClientIpResolverTest {
+
+    private final ClientIpResolver resolver = new ClientIpResolver(List.of("10.0.0.0/8", " 192.168.1.1 "));
+
+    @Test
+    void ignoresForwardedForFromAnUntrustedCaller() {
+        assertEquals("203.0.113.7", resolver.resolve(request("203.0.113.7", "1.2.3.4")));
+        assertEquals("10.0.0.5", new ClientIpResolver(List.of()).resolve(request("10.0.0.5", "1.2.3.4")));
+    }
+
+    @Test
+    void takesTheRightMostUntrustedHop() {
+        // The client forged "6.6.6.6", the proxies appended the address they saw
+        assertEquals("198.51.100.2", resolver.resolve(request("10.0.0.5", "6.6.6.6, 198.51.100.2, 192.168.1.1")));
+        assertEquals("198.51.100.2", resolver.resolve(request("192.168.1.1", "198.51.100.2")));
+    }
+
+    @Test
+    void fallsBackToTheLastTrustedHop() {
+        assertEquals("10.1.2.3", resolver.resolve(request("10.0.0.5", "10.1.2.3")));
+        assertEquals("10.0.0.5", resolver.resolve(request("10.0.0.5", "")));
+        assertEquals("10.0.0.5", resolver.resolve(request("10.0.0.5", "not-an-ip")));
+        assertEquals("10.1.2.3", resolver.resolve(request("10.0.0.5", "evil.example.com, 10.1.2.3")));
+    }
+
+    @Test
+    void mapsIpv6LoopbackToIpv4() {
+        assertEquals("127.0.0.1", resolver.resolve(request("0:0:0:0:0:0:0:1", null)));
+    }
+
+    private static MockHttpServletRequest request(String remoteAddr, String forwardedFor) {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setRemoteAddr(remoteAddr);
+        if (forwardedFor != null) request.addHeader("X-Forwarded-For", forwardedFor);
+        return request;
+    }
+}
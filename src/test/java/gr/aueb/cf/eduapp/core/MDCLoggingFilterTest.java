@@ -0,0 +1,99 @@
+package gr.aueb.cf.eduapp.core;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import gr.aueb.cf.eduapp.authentication.JwtService;
+import gr.aueb.cf.eduapp.core.enums.GenderType;
+import gr.aueb.cf.eduapp.core.enums.Role;
+import gr.aueb.cf.eduapp.model.User;
+import gr.aueb.cf.eduapp.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+/**
+ * The statement count of a request starts ahead of the security chain, so the user lookup of the JWT filter is in it.
+ */
+@SpringBootTest(properties = {
+        "app.sql.warn-statements=0",                // every request is logged with its count
+        "app.security.principal-cache.enabled=false"})
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class MDCLoggingFilterTest {
+
+    private static final String USERNAME = "mdc-teacher@aueb.gr";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JwtService jwtService;
+
+    private final ListAppender<ILoggingEvent> appender = new ListAppender<>();
+    private final Logger logger = (Logger) LoggerFactory.getLogger(MDCLoggingFilter.class);
+
+    @BeforeEach
+    void setUp() {
+        if (userRepository.findByUsername(USERNAME).isEmpty()) {
+            User user = new User();
+            user.setUsername(USERNAME);
+            user.setPassword("not-used");
+            user.setFirstname("Anna");
+            user.setLastname("Papadopoulou");
+            user.setVat("987654321");
+            user.setDateOfBirth(LocalDate.of(1990, 1, 1));
+            user.setGender(GenderType.FEMALE);
+            user.setRole(Role.TEACHER);
+            user.setIsActive(true);
+            userRepository.save(user);
+        }
+        appender.start();
+        logger.addAppender(appender);
+    }
+
+    @AfterEach
+    void tearDown() {
+        logger.detachAppender(appender);
+    }
+
+    @Test
+    void authenticatedRequestCountsTheUserLookup() throws Exception {
+        long userId = userRepository.findByUsername(USERNAME).orElseThrow().getId();
+        String token = jwtService.generateToken(userId, USERNAME, Role.TEACHER.name(), 0);
+
+        // No handler, so the user lookup is the only statement of the request
+        mockMvc.perform(get("/api/no-such-endpoint").header("Authorization", "Bearer " + token));
+
+        assertEquals(List.of("GET /api/no-such-endpoint ran 1 SQL statements"), statementLogs());
+    }
+
+    @Test
+    void anonymousRequestRunsNoStatement() throws Exception {
+        mockMvc.perform(get("/api/no-such-endpoint"));      // rejected by the security chain
+
+        assertEquals(List.of("GET /api/no-such-endpoint ran 0 SQL statements"), statementLogs());
+    }
+
+    private List<String> statementLogs() {
+        return appender.list.stream()
+                .map(ILoggingEvent::getFormattedMessage)
+                .map(message -> message.substring(0, message.indexOf(" taking ")))
+                .toList();
+    }
+}
@@ -0,0 +1,62 @@
+package gr.aueb.cf.eduapp.core;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NgramIndexTest {
+
+    private NgramIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new NgramIndex();
+        index.put(1, "Anna", "Papadopoulou", "123456789");
+        index.put(2, "Nikos", "Annas", "987654321");
+        index.put(3, "Maria", "Georgiou", null);
+    }
+
+    @Test
+    void findsSubstringsAndPrefixesIgnoringCase() {
+        assertArrayEquals(new long[] { 1, 2 }, index.search("ann", 10));
+        assertArrayEquals(new long[] { 1 }, index.search("papa", 10));
+        assertArrayEquals(new long[] { 2 }, index.search(" 6543 ", 10));
+        assertArrayEquals(new long[] { 3 }, index.search("ma", 10));     // shorter than a trigram
+    }
+
+    @Test
+    void ignoresAccentsLikeTheCollation() {
+        index.put(5, "Γιώργος", "Παπαδόπουλος");
+        index.put(6, "José", "Müller");
+
+        assertArrayEquals(new long[] { 5 }, index.search("γιωργ", 10));
+        assertArrayEquals(new long[] { 5 }, index.search("ΠΑΠΑΔΌΠ", 10));
+        assertArrayEquals(new long[] { 6 }, index.search("jose", 10));
+        assertArrayEquals(new long[] { 6 }, index.search("MULLER", 10));
+    }
+
+    @Test
+    void trigramsFromDifferentValuesAreNotAMatch() {
+        // Every trigram of "ABCDX" is in document 4, but no single value contains it
+        index.put(4, "abcd", "bcdx");
+        assertArrayEquals(new long[0], index.search("abcdx", 10));
+        assertArrayEquals(new long[] { 4 }, index.search("bcdx", 10));
+    }
+
+    @Test
+    void updatesReplaceTheIndexedValues() {
+        index.put(1, "Eleni", "Papadopoulou", "123456789");
+        assertArrayEquals(new long[] { 2 }, index.search("anna", 10));
+
+        index.remove(2);
+        assertArrayEquals(new long[0], index.search("anna", 10));
+        assertEquals(2, index.size());
+    }
+
+    @Test
+    void returnsNullWhenMoreThanTheLimitMatch() {
+        assertNull(index.search("a", 2));
+        assertEquals(3, index.search("a", 3).length);
+    }
+}
@@ -0,0 +1,106 @@
+package gr.aueb.cf.eduapp.core.datasource;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Two H2 databases stand in for the primary and the replica, each holding a row with its own name,
+ * so every read tells which one served it.
+ */
+class ReadWriteRoutingDataSourceTest {
+
+    private static final Duration STICKY_WINDOW = Duration.ofMillis(300);
+
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate readOnly;
+    private TransactionTemplate readWrite;
+
+    @BeforeEach
+    void setUp() {
+        DataSource primary = database("primary");
+        DataSource replica = database("replica");
+
+        ReadYourWritesTracker tracker = new ReadYourWritesTracker(STICKY_WINDOW);
+        ReadWriteRoutingDataSource routing = new ReadWriteRoutingDataSource(primary, replica, tracker);
+        routing.afterPropertiesSet();
+        DataSource dataSource = new LazyConnectionDataSourceProxy(routing);
+
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+        transactionManager.addListener(tracker);
+
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        readWrite = new TransactionTemplate(transactionManager);
+        readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void readOnlyTransactionsGoToReplicaAndOthersToPrimary() {
+        loginAs("anna");
+
+        assertEquals("replica", readOnly.execute(status -> node()));
+        assertEquals("primary", readWrite.execute(status -> node()));
+        assertEquals("primary", node());    // no transaction
+    }
+
+    @Test
+    void writerReadsFromPrimaryForTheStickyWindow() throws InterruptedException {
+        loginAs("anna");
+        readWrite.executeWithoutResult(status -> jdbcTemplate.update("update node set touched = touched + 1"));
+
+        assertEquals("primary", readOnly.execute(status -> node()));
+
+        loginAs("nikos");
+        assertEquals("replica", readOnly.execute(status -> node()));
+
+        Thread.sleep(STICKY_WINDOW.toMillis() + 100);
+        loginAs("anna");
+        assertEquals("replica", readOnly.execute(status -> node()));
+    }
+
+    @Test
+    void rolledBackWritesDoNotStick() {
+        loginAs("anna");
+        readWrite.executeWithoutResult(status -> {
+            jdbcTemplate.update("update node set touched = touched + 1");
+            status.setRollbackOnly();
+        });
+
+        assertEquals("replica", readOnly.execute(status -> node()));
+    }
+
+    private String node() {
+        return jdbcTemplate.queryForObject("select name from node", String.class);
+    }
+
+    private static void loginAs(String username) {
+        SecurityContextHolder.getContext().setAuthentication(new TestingAuthenticationToken(username, null, "TEACHER"));
+    }
+
+    private static DataSource database(String name) {
+        DataSource dataSource = new DriverManagerDataSource("jdbc:h2:mem:routing-" + name + ";DB_CLOSE_DELAY=-1", "sa", "");
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        jdbc.execute("drop table if exists node");
+        jdbc.execute("create table node (name varchar(16), touched int)");
+        jdbc.update("insert into node (name, touched) values (?, 0)", name);
+        return dataSource;
+    }
+}
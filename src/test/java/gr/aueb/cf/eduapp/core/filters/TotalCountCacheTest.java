@@ -0,0 +1,86 @@
+package gr.aueb.cf.eduapp.core.filters;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TotalCountCacheTest {
+
+    private final AtomicInteger counts = new AtomicInteger();
+
+    @Test
+    void countsEachKeyOncePerTtl() {
+        TotalCountCache cache = cache(Duration.ofMinutes(1));
+
+        assertEquals(12, cache.get("teachers:all", () -> count(12)));
+        assertEquals(12, cache.get("teachers:all", () -> count(13)));
+        assertEquals(3, cache.get("teachers:active", () -> count(3)));
+        assertEquals(2, counts.get());
+    }
+
+    @Test
+    void exactTotalReplacesTheCachedOne() {
+        TotalCountCache cache = cache(Duration.ofMinutes(1));
+        cache.get("teachers:all", () -> count(12));
+
+        cache.put("teachers:all", 13);
+
+        assertEquals(13, cache.get("teachers:all", () -> count(14)));
+        assertEquals(1, counts.get());
+    }
+
+    @Test
+    void staleTotalIsCountedAgain() throws InterruptedException {
+        TotalCountCache cache = cache(Duration.ofMillis(20));
+        cache.get("teachers:all", () -> count(12));
+
+        Thread.sleep(100);
+
+        assertEquals(13, cache.get("teachers:all", () -> count(13)));
+        assertEquals(2, counts.get());
+    }
+
+    @Test
+    void concurrentMissesRunASingleCount() throws Exception {
+        TotalCountCache cache = cache(Duration.ofMinutes(1));
+        CountDownLatch counting = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        CompletableFuture<Long> first = CompletableFuture.supplyAsync(() -> cache.get("teachers:all", () -> {
+            counting.countDown();
+            await(release);
+            return count(12);
+        }));
+        assertTrue(counting.await(5, TimeUnit.SECONDS));
+        CompletableFuture<Long> second = CompletableFuture.supplyAsync(() -> cache.get("teachers:all", () -> count(99)));
+        release.countDown();
+
+        assertEquals(12, first.get(5, TimeUnit.SECONDS));
+        assertEquals(12, second.get(5, TimeUnit.SECONDS));
+        assertEquals(1, counts.get());
+    }
+
+    private TotalCountCache cache(Duration ttl) {
+        return new TotalCountCache(100, ttl, new SimpleMeterRegistry());
+    }
+
+    private long count(long total) {
+        counts.incrementAndGet();
+        return total;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package gr.aueb.cf.eduapp.core.jdbc;
+
+import gr.aueb.cf.eduapp.model.AbstractEntity;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Tables already holding IDENTITY ids, with generators behind, missing, or already ahead of them.
+ */
+class IdGeneratorAlignerTest {
+
+    private JdbcTemplate jdbcTemplate;
+    private IdGeneratorAligner aligner;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = new JdbcTemplate(new DriverManagerDataSource("jdbc:h2:mem:aligner;DB_CLOSE_DELAY=-1", "sa", ""));
+        for (String table : new String[] { "teachers", "users", "personal_information", AbstractEntity.ID_TABLE }) {
+            jdbcTemplate.execute("drop table if exists " + table);
+        }
+        jdbcTemplate.execute("create table teachers (id bigint primary key)");
+        jdbcTemplate.execute("create table users (id bigint primary key)");
+        jdbcTemplate.execute("create table personal_information (id bigint primary key)");
+        jdbcTemplate.execute("create table " + AbstractEntity.ID_TABLE + " (name varchar(255) primary key, next_val bigint)");
+        for (long id = 1; id <= 120; id++) {
+            jdbcTemplate.update("insert into teachers (id) values (?)", id);
+            jdbcTemplate.update("insert into users (id) values (?)", id);
+            jdbcTemplate.update("insert into personal_information (id) values (?)", id);
+        }
+
+        jdbcTemplate.update("insert into " + AbstractEntity.ID_TABLE + " (name, next_val) values ('teachers', 1)");
+        jdbcTemplate.update("insert into " + AbstractEntity.ID_TABLE + " (name, next_val) values ('personal_information', 1000)");
+        aligner = new IdGeneratorAligner(jdbcTemplate);
+    }
+
+    @Test
+    void generatorsMoveABlockPastTheMaxId() {
+        aligner.afterSingletonsInstantiated();
+
+        long expected = 120 + 1 + AbstractEntity.ID_ALLOCATION_SIZE;
+        assertEquals(expected, nextVal("teachers"));
+        assertEquals(expected, nextVal("users"));                   // missing row is created
+        assertEquals(1000, nextVal("personal_information"));        // never moved back
+    }
+
+    @Test
+    void aligningTwiceIsANoOp() {
+        aligner.afterSingletonsInstantiated();
+        aligner.afterSingletonsInstantiated();
+
+        assertEquals(120 + 1 + AbstractEntity.ID_ALLOCATION_SIZE, nextVal("teachers"));
+        assertEquals(1, jdbcTemplate.queryForObject("select count(*) from " + AbstractEntity.ID_TABLE + " where name = 'users'", Integer.class));
+    }
+
+    @Test
+    void failureToAlignFailsTheStartup() {
+        jdbcTemplate.execute("drop table users");
+
+        IllegalStateException e = assertThrows(IllegalStateException.class, aligner::afterSingletonsInstantiated);
+        assertEquals("Id generator users could not be aligned with table users", e.getMessage());
+    }
+
+    private long nextVal(String generator) {
+        return jdbcTemplate.queryForObject("select next_val from " + AbstractEntity.ID_TABLE + " where name = ?", Long.class, generator);
+    }
+}
@@ -0,0 +1,29 @@
+package gr.aueb.cf.eduapp.core.jdbc;
+
+import java.util.concurrent.Callable;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Asserts the exact number of SQL statements an action runs, so that an added lazy load or EAGER
+ * association fails the test instead of slowing down production. The test context must wrap its
+ * DataSource, i.e. {@code @Import(StatementCountingBeanPostProcessor.class)} on slice tests.
+ */
+public final class SqlStatements {
+
+    private SqlStatements() {
+    }
+
+    public static <T> T assertStatements(int expected, Callable<T> action) throws Exception {
+        SqlStatementCounter.start();
+        T result;
+        SqlStatementCounter.Counts counts;
+        try {
+            result = action.call();
+        } finally {
+            counts = SqlStatementCounter.stop();
+        }
+        assertEquals(expected, counts.statements(), "SQL statements");
+        return result;
+    }
+}
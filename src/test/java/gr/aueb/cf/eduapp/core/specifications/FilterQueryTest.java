@@ -0,0 +1,50 @@
+package gr.aueb.cf.eduapp.core.specifications;
+
+import gr.aueb.cf.eduapp.core.filters.TeacherFilters;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FilterQueryTest {
+
+    @Test
+    void unsetFiltersCompileToNothing() {
+        assertSame(CompiledFilter.NONE, TeacherFilterQuery.INSTANCE.compile(TeacherFilters.builder().uuid(" ").build()));
+        assertEquals("", CompiledFilter.NONE.where());
+    }
+
+    @Test
+    void filtersOnTheSameAssociationShareOneJoin() {
+        CompiledFilter filter = TeacherFilterQuery.INSTANCE.compile(
+                TeacherFilters.builder().userVat("123456789").active(true).build());
+
+        assertEquals(" join t.user u", filter.joins());
+        assertEquals(" where u.vat = :f1 and u.isActive = :f3", filter.where());
+        assertEquals("123456789", filter.parameters().get("f1"));
+        assertEquals(true, filter.parameters().get("f3"));
+    }
+
+    @Test
+    void shapeIsBuiltOncePerCombinationOfFilters() {
+        FilterQuery<TeacherFilters> query = FilterQuery.<TeacherFilters>builder("Teacher", "t")
+                .join("personalInfo", "p")
+                .like("uuid", TeacherFilters::getUuid)
+                .equal("personalInfo.amka", TeacherFilters::getUserAmka)
+                .build();
+
+        CompiledFilter first = query.compile(TeacherFilters.builder().uuid("ab").build());
+        CompiledFilter second = query.compile(TeacherFilters.builder().uuid("cd").build());
+        query.compile(TeacherFilters.builder().uuid("ab").userAmka("12345678901").build());
+
+        assertSame(first.predicate(), second.predicate());
+        assertEquals("%CD%", second.parameters().get("f0"));
+        assertEquals(2, query.cachedShapes());
+    }
+
+    @Test
+    void sortPathsReuseJoinAliasesAndRejectAnythingElse() {
+        assertEquals("u.lastname", TeacherFilterQuery.INSTANCE.path("user.lastname"));
+        assertEquals("t.createdAt", TeacherFilterQuery.INSTANCE.path("createdAt"));
+        assertThrows(IllegalArgumentException.class, () -> TeacherFilterQuery.INSTANCE.path("id; drop table teachers"));
+    }
+}
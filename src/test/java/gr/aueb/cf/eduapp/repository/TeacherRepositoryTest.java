@@ -0,0 +1,143 @@
+package gr.aueb.cf.eduapp.repository;
+
+import gr.aueb.cf.eduapp.core.enums.GenderType;
+import gr.aueb.cf.eduapp.core.enums.Role;
+import gr.aueb.cf.eduapp.core.exceptions.AppObjectInvalidArgumentException;
+import gr.aueb.cf.eduapp.core.filters.KeysetCursor;
+import gr.aueb.cf.eduapp.core.filters.KeysetPage;
+import gr.aueb.cf.eduapp.core.filters.TeacherFilters;
+import gr.aueb.cf.eduapp.core.specifications.CompiledFilter;
+import gr.aueb.cf.eduapp.core.specifications.TeacherFilterQuery;
+import gr.aueb.cf.eduapp.dto.TeacherReadOnlyDTO;
+import gr.aueb.cf.eduapp.model.PersonalInfo;
+import gr.aueb.cf.eduapp.model.Teacher;
+import gr.aueb.cf.eduapp.model.User;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDate;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DataJpaTest
+@ActiveProfiles("test")
+class TeacherRepositoryTest {
+
+    private static final int TEACHERS = 30;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private TeacherRepository teacherRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        for (int i = 0; i < TEACHERS; i++) {
+            entityManager.persist(teacher(i));
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Test
+    void readOnlyPageRunsTheSameStatementsWhateverThePageSize() {
+        assertEquals(2, statementsForPage(5));
+        assertEquals(2, statementsForPage(20));
+    }
+
+    @Test
+    void readOnlyPageIsFilteredAndMapped() {
+        Page<TeacherReadOnlyDTO> page = teacherRepository.findAllReadOnly(
+                TeacherFilterQuery.INSTANCE.compile(TeacherFilters.builder().userVat("100000007").active(true).build()),
+                PageRequest.of(0, 10));
+
+        assertEquals(1, page.getTotalElements());
+        TeacherReadOnlyDTO teacher = page.getContent().get(0);
+        assertEquals("Firstname7", teacher.userReadOnlyDTO().firstname());
+        assertEquals("20000000007", teacher.personalInfoReadOnlyDTO().amka());
+        assertEquals("ID000007", teacher.personalInfoReadOnlyDTO().identityNumber());
+    }
+
+    @Test
+    void keysetPagesWalkEveryTeacherOnce() {
+        Set<Long> seen = new HashSet<>();
+        KeysetCursor after = null;
+        String previousLastname = null;
+        do {
+            KeysetPage<TeacherReadOnlyDTO> page = teacherRepository.findAllReadOnly(CompiledFilter.NONE, "user.lastname",
+                    Sort.Direction.DESC, after, 7);
+            for (TeacherReadOnlyDTO teacher : page.content()) {
+                assertTrue(seen.add(teacher.id()));
+                String lastname = teacher.userReadOnlyDTO().lastname();
+                if (previousLastname != null) assertTrue(lastname.compareTo(previousLastname) <= 0);
+                previousLastname = lastname;
+            }
+            after = page.hasNext() ? decode(page.nextCursor()) : null;
+        } while (after != null);
+
+        assertEquals(TEACHERS, seen.size());
+    }
+
+    private static KeysetCursor decode(String cursor) {
+        try {
+            return KeysetCursor.decode(cursor, "user.lastname", Sort.Direction.DESC);
+        } catch (AppObjectInvalidArgumentException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    // Page of the middle of the table, so that both the select and the count query run
+    private long statementsForPage(int size) {
+        statistics.clear();
+        Page<TeacherReadOnlyDTO> page = teacherRepository.findAllReadOnly(CompiledFilter.NONE,
+                PageRequest.of(1, size, Sort.by("id")));
+
+        assertEquals(size, page.getNumberOfElements());
+        assertEquals(TEACHERS, page.getTotalElements());
+        return statistics.getPrepareStatementCount();
+    }
+
+    private static Teacher teacher(int i) {
+        User user = new User();
+        user.setUsername("teacher" + i + "@aueb.gr");
+        user.setPassword("hash");
+        user.setFirstname("Firstname" + i);
+        user.setLastname("Lastname" + i);
+        user.setVat(String.format("1%08d", i));
+        user.setDateOfBirth(LocalDate.of(1990, 1, 1));
+        user.setGender(GenderType.FEMALE);
+        user.setRole(Role.TEACHER);
+        user.setIsActive(true);
+
+        PersonalInfo personalInfo = new PersonalInfo();
+        personalInfo.setAmka(String.format("2%010d", i));
+        personalInfo.setIdentityNumber(String.format("ID%06d", i));
+
+        Teacher teacher = new Teacher();
+        teacher.setIsActive(true);
+        teacher.setUser(user);
+        teacher.setPersonalInfo(personalInfo);
+        return teacher;
+    }
+}
@@ -0,0 +1,106 @@
+package gr.aueb.cf.eduapp.security;
+
+import gr.aueb.cf.eduapp.core.ClientIpResolver;
+import gr.aueb.cf.eduapp.core.ErrorHandler;
+import gr.aueb.cf.eduapp.core.exceptions.AppServerBusyException;
+import gr.aueb.cf.eduapp.dto.ResponseMessageDTO;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BoundedPasswordEncoderTest {
+
+    private BoundedPasswordEncoder encoder;
+    private CountDownLatch release;
+
+    @BeforeEach
+    void setUp() {
+        // One hashing thread, one waiting slot
+        encoder = new BoundedPasswordEncoder(4, 1, 1, 5_000, new SimpleMeterRegistry());
+        release = new CountDownLatch(1);
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        encoder.shutdown();
+    }
+
+    @Test
+    void encodesAndMatchesOnThePool() {
+        String hash = encoder.encode("Passw0rd!");
+
+        assertTrue(encoder.matches("Passw0rd!", hash));
+        assertFalse(encoder.matches("wrong", hash));
+    }
+
+    @Test
+    void rejectsWhenThePoolAndTheQueueAreFull() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CompletableFuture<Boolean> running = CompletableFuture.supplyAsync(() -> encoder.runBounded(() -> {
+            started.countDown();
+            return release.await(5, TimeUnit.SECONDS);
+        }));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        CompletableFuture<Boolean> queued = CompletableFuture.supplyAsync(() -> encoder.runBounded(() -> release.await(5, TimeUnit.SECONDS)));
+        waitUntilQueued();
+
+        AppServerBusyException e = assertThrows(AppServerBusyException.class, () -> encoder.encode("Passw0rd!"));
+        assertEquals("PasswordHashingServerBusy", e.getCode());
+
+        release.countDown();
+        assertTrue(running.get(5, TimeUnit.SECONDS));
+        assertTrue(queued.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void timedOutHashKeepsItsThreadButFreesItsQueueSlot() throws Exception {
+        encoder.shutdown();
+        encoder = new BoundedPasswordEncoder(4, 1, 1, 100, new SimpleMeterRegistry());
+
+        // Ignores the interrupt, like BCrypt does
+        assertThrows(AppServerBusyException.class, () -> encoder.runBounded(() -> {
+            while (release.getCount() > 0) {
+                Thread.onSpinWait();
+            }
+            return true;
+        }));
+
+        // The abandoned hash still holds the only thread, so the next one waits and times out too,
+        // and gives its queue slot back when it does
+        assertThrows(AppServerBusyException.class, () -> encoder.encode("Passw0rd!"));
+        assertEquals(0, encoder.queued());
+
+        release.countDown();
+        assertTrue(encoder.matches("Passw0rd!", encoder.encode("Passw0rd!")));
+    }
+
+    @Test
+    void serverBusyIsAnsweredWith503() {
+        ResponseEntity<ResponseMessageDTO> response = new ErrorHandler(new ClientIpResolver(List.of()))
+                .handleServerBusy(new AppServerBusyException("PasswordHashing", "Too many concurrent password operations"));
+
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, response.getStatusCode());
+        assertEquals("1", response.getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+        assertEquals("PasswordHashingServerBusy", response.getBody().code());
+    }
+
+    private void waitUntilQueued() throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (encoder.queued() == 0) {
+            assertTrue(System.nanoTime() < deadline, "Nothing was queued");
+            Thread.sleep(5);
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package gr.aueb.cf.eduapp.security;
+
+import gr.aueb.cf.eduapp.api.AuthRestController;
+import gr.aueb.cf.eduapp.authentication.AuthenticationService;
+import gr.aueb.cf.eduapp.authentication.JwtService;
+import gr.aueb.cf.eduapp.authentication.TokenEpochRegistry;
+import gr.aueb.cf.eduapp.authentication.TokenRevocationService;
+import gr.aueb.cf.eduapp.authentication.VerifiedTokenCache;
+import gr.aueb.cf.eduapp.core.ClientIpResolver;
+import gr.aueb.cf.eduapp.core.exceptions.AppObjectInvalidArgumentException;
+import gr.aueb.cf.eduapp.repository.RevokedTokenRepository;
+import gr.aueb.cf.eduapp.repository.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * A token revoked on logout is rejected by the filter, even though it is still cached as verified.
+ */
+class JwtAuthenticationFilterTest {
+
+    private final RevokedTokenRepository revokedTokenRepository = mock(RevokedTokenRepository.class);
+
+    private JwtService jwtService;
+    private JwtAuthenticationFilter filter;
+    private AuthRestController authRestController;
+    private String token;
+
+    @BeforeEach
+    void setUp() {
+        jwtService = new JwtService();
+        ReflectionTestUtils.setField(jwtService, "secretKey", "5ce98d378ec88ea09ba8bcd511ef23645f04cc8e70b9134b98723a53c275bbc5");
+        ReflectionTestUtils.setField(jwtService, "jwtExpiration", 10_800_000L);
+        ReflectionTestUtils.invokeMethod(jwtService, "init");
+        token = jwtService.generateToken(1L, "teacher@aueb.gr", "TEACHER", 0);
+
+        TokenRevocationService tokenRevocationService = new TokenRevocationService(revokedTokenRepository, 1000);
+        filter = new JwtAuthenticationFilter(
+                new VerifiedTokenCache(jwtService, true, 100, new SimpleMeterRegistry()),
+                mock(UserDetailsService.class),
+                new TokenEpochRegistry(mock(UserRepository.class)),
+                tokenRevocationService);
+        ReflectionTestUtils.setField(filter, "statelessPrincipal", true);
+
+        AuthenticationService authenticationService = new AuthenticationService(jwtService, mock(UserRepository.class),
+                mock(AuthenticationManager.class), mock(LoginRateLimiter.class), tokenRevocationService);
+        authRestController = new AuthRestController(authenticationService, new ClientIpResolver(List.of()));
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void revokedTokenIsRejected() throws Exception {
+        MockFilterChain chain = new MockFilterChain();
+        filter.doFilter(bearer(token), new MockHttpServletResponse(), chain);
+        assertNotNull(chain.getRequest());
+        assertEquals("teacher@aueb.gr", SecurityContextHolder.getContext().getAuthentication().getName());
+
+        authRestController.logout("Bearer " + token);
+        verify(revokedTokenRepository).save(any());
+        when(revokedTokenRepository.existsById(jwtService.validateToken(token).jti())).thenReturn(true);
+        SecurityContextHolder.clearContext();
+
+        MockFilterChain afterLogout = new MockFilterChain();
+        assertThrows(BadCredentialsException.class,
+                () -> filter.doFilter(bearer(token), new MockHttpServletResponse(), afterLogout));
+        assertNull(afterLogout.getRequest());
+        assertNull(SecurityContextHolder.getContext().getAuthentication());
+    }
+
+    @Test
+    void logoutWithoutABearerTokenIsABadRequest() {
+        for (String authorization : new String[] { null, "", "Basic dGVhY2hlcg==", "Bearer" }) {
+            AppObjectInvalidArgumentException e = assertThrows(AppObjectInvalidArgumentException.class,
+                    () -> authRestController.logout(authorization));
+            assertEquals("AuthorizationInvalidArgument", e.getCode());
+        }
+    }
+
+    private static MockHttpServletRequest bearer(String token) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/teachers");
+        request.addHeader("Authorization", "Bearer " + token);
+        return request;
+    }
+}
@@ -0,0 +1,90 @@
+package gr.aueb.cf.eduapp.security;
+
+import gr.aueb.cf.eduapp.authentication.AuthenticationService;
+import gr.aueb.cf.eduapp.authentication.JwtService;
+import gr.aueb.cf.eduapp.authentication.TokenRevocationService;
+import gr.aueb.cf.eduapp.core.exceptions.AppTooManyRequestsException;
+import gr.aueb.cf.eduapp.dto.AuthenticationRequestDTO;
+import gr.aueb.cf.eduapp.repository.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.BadCredentialsException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class LoginRateLimiterTest {
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void limitsFailedAttemptsPerUsernameIgnoringCase() {
+        LoginRateLimiter limiter = limiter(true, 100, 2);
+
+        assertTrue(limiter.tryAcquire("teacher@aueb.gr", "1.1.1.1"));
+        limiter.onFailure("teacher@aueb.gr");
+        assertTrue(limiter.tryAcquire("Teacher@AUEB.gr", "2.2.2.2"));
+        limiter.onFailure("Teacher@AUEB.gr");
+        assertFalse(limiter.tryAcquire("TEACHER@aueb.gr", "3.3.3.3"));
+        assertTrue(limiter.tryAcquire("other@aueb.gr", "3.3.3.3"));
+
+        assertEquals(3, count("admitted"));
+        assertEquals(1, count("rejected_user"));
+    }
+
+    @Test
+    void successfulAttemptsAreNotChargedToTheUsername() {
+        LoginRateLimiter limiter = limiter(true, 100, 2);
+
+        for (int i = 0; i < 10; i++) assertTrue(limiter.tryAcquire("teacher@aueb.gr", "1.1.1." + i));
+        assertEquals(0, count("rejected_user"));
+    }
+
+    @Test
+    void failedAuthenticationIsChargedToTheUsername() {
+        LoginRateLimiter limiter = limiter(true, 100, 1);
+        AuthenticationManager authenticationManager = mock(AuthenticationManager.class);
+        when(authenticationManager.authenticate(any())).thenThrow(new BadCredentialsException("Bad credentials"));
+        AuthenticationService authenticationService = new AuthenticationService(mock(JwtService.class),
+                mock(UserRepository.class), authenticationManager, limiter, mock(TokenRevocationService.class));
+        AuthenticationRequestDTO attempt = new AuthenticationRequestDTO("teacher@aueb.gr", "wrong");
+
+        assertThrows(BadCredentialsException.class, () -> authenticationService.authenticate(attempt, "1.1.1.1"));
+        AppTooManyRequestsException e = assertThrows(AppTooManyRequestsException.class,
+                () -> authenticationService.authenticate(attempt, "2.2.2.2"));
+        assertEquals("LoginTooManyRequests", e.getCode());
+    }
+
+    @Test
+    void limitsAttemptsPerIpAcrossUsernames() {
+        LoginRateLimiter limiter = limiter(true, 2, 100);
+
+        assertTrue(limiter.tryAcquire("a@aueb.gr", "1.1.1.1"));
+        assertTrue(limiter.tryAcquire("b@aueb.gr", "1.1.1.1"));
+        assertFalse(limiter.tryAcquire("c@aueb.gr", "1.1.1.1"));
+        assertTrue(limiter.tryAcquire("c@aueb.gr", "2.2.2.2"));
+
+        assertEquals(1, count("rejected_ip"));
+    }
+
+    @Test
+    void admitsEverythingWhenDisabled() {
+        LoginRateLimiter limiter = limiter(false, 1, 1);
+
+        for (int i = 0; i < 10; i++) assertTrue(limiter.tryAcquire("teacher@aueb.gr", "1.1.1.1"));
+        assertEquals(0, count("admitted"));
+    }
+
+    // Refill of 0.001 per minute: nothing comes back during the test
+    private LoginRateLimiter limiter(boolean enabled, int ipCapacity, int userCapacity) {
+        return new LoginRateLimiter(enabled, ipCapacity, 0.001, userCapacity, 0.001, 1000, meterRegistry);
+    }
+
+    private double count(String outcome) {
+        return meterRegistry.counter("eduapp.login.attempts", "outcome", outcome).count();
+    }
+}
@@ -0,0 +1,51 @@
+package gr.aueb.cf.eduapp.security;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StripedTokenBucketsTest {
+
+    private static final long MINUTE = TimeUnit.MINUTES.toNanos(1);
+
+    @Test
+    void admitsUpToTheCapacityThenRefillsOverTime() {
+        StripedTokenBuckets buckets = new StripedTokenBuckets(4, 3, 6, 100);
+
+        for (int i = 0; i < 3; i++) assertTrue(buckets.tryAcquire("1.2.3.4", 0));
+        assertFalse(buckets.tryAcquire("1.2.3.4", 0));
+        assertTrue(buckets.tryAcquire("5.6.7.8", 0));              // other keys have their own bucket
+
+        long later = MINUTE / 4;                                    // 6 per minute: 1.5 tokens after 15 s
+        assertTrue(buckets.tryAcquire("1.2.3.4", later));
+        assertFalse(buckets.tryAcquire("1.2.3.4", later));
+    }
+
+    @Test
+    void refillNeverExceedsTheCapacity() {
+        StripedTokenBuckets buckets = new StripedTokenBuckets(1, 2, 60, 100);
+        assertTrue(buckets.tryAcquire("key", 0));
+
+        long later = 10 * MINUTE;
+        assertTrue(buckets.tryAcquire("key", later));
+        assertTrue(buckets.tryAcquire("key", later));
+        assertFalse(buckets.tryAcquire("key", later));
+    }
+
+    @Test
+    void evictionKeepsTheNumberOfBucketsBounded() {
+        // Room for two buckets in all: a third key evicts one, so an emptied key comes back full
+        StripedTokenBuckets buckets = new StripedTokenBuckets(1, 1, 0.001, 2);
+        assertTrue(buckets.tryAcquire("a", 0));
+        assertTrue(buckets.tryAcquire("b", 0));
+        assertTrue(buckets.tryAcquire("c", 0));
+
+        int admitted = 0;
+        for (String key : new String[] { "a", "b" }) {
+            if (buckets.tryAcquire(key, 0)) admitted++;
+        }
+        assertTrue(admitted >= 1, "An evicted key starts with a full bucket");
+    }
+}
@@ -0,0 +1,46 @@
+package gr.aueb.cf.eduapp.security;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * The bulk import is matched on the SUPER_ADMIN authority, which carries no ROLE_ prefix.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class TeacherImportSecurityTest {
+
+    private static final String CSV = """
+            isActive,firstname,lastname,username,password,vat,fatherName,fatherLastname,motherName,motherLastname,dateOfBirth,gender,role,amka,identityNumber,placeOfBirth,municipalityOfRegistration
+            true,Anna,Import,anna.import@aueb.gr,Passw0rd!,300000001,Father,Fatherlastname,Mother,Motherlastname,1990-01-01,FEMALE,TEACHER,40000000001,IMP000001,Athens,Athens
+            """;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    @WithMockUser(authorities = "SUPER_ADMIN")
+    void superAdminImportsTeachers() throws Exception {
+        mockMvc.perform(post("/api/teachers/import").contentType("text/csv").content(CSV))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("\"status\":\"CREATED\"")));
+    }
+
+    @Test
+    @WithMockUser(authorities = "TEACHER")
+    void teachersAreForbidden() throws Exception {
+        mockMvc.perform(post("/api/teachers/import").contentType("text/csv").content(CSV))
+                .andExpect(status().isForbidden());
+    }
+}
@@ -0,0 +1,70 @@
+package gr.aueb.cf.eduapp.security;
+
+import gr.aueb.cf.eduapp.core.enums.GenderType;
+import gr.aueb.cf.eduapp.core.enums.Role;
+import gr.aueb.cf.eduapp.dto.PersonalInfoInsertDTO;
+import gr.aueb.cf.eduapp.dto.TeacherInsertDTO;
+import gr.aueb.cf.eduapp.dto.UserInsertDTO;
+import gr.aueb.cf.eduapp.service.ITeacherService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * A teacher can patch only themselves, like they can only change their own password.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@Transactional
+class TeacherPatchSecurityTest {
+
+    private static final String DEACTIVATE = "{\"isActive\": false}";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ITeacherService teacherService;
+
+    @Test
+    @WithMockUser(username = "owner@aueb.gr", roles = "TEACHER")     // the /api/teachers/** rule matches on roles
+    void teacherPatchesThemselves() throws Exception {
+        String uuid = save("owner@aueb.gr", 1);
+
+        mockMvc.perform(patch("/api/teachers/" + uuid).contentType(MediaType.APPLICATION_JSON).content(DEACTIVATE))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.isActive").value(false));
+    }
+
+    @Test
+    @WithMockUser(username = "owner@aueb.gr", roles = "TEACHER")
+    void teacherCannotPatchAnotherTeacher() throws Exception {
+        save("owner@aueb.gr", 1);
+        String other = save("other@aueb.gr", 2);
+
+        mockMvc.perform(patch("/api/teachers/" + other).contentType(MediaType.APPLICATION_JSON).content(DEACTIVATE))
+                .andExpect(status().isForbidden())
+                .andExpect(jsonPath("$.code").value("TeacherNotAuthorized"));
+    }
+
+    private String save(String username, int i) throws Exception {
+        UserInsertDTO user = new UserInsertDTO("Firstname", "Lastname", username, "Passw0rd!", String.format("7%08d", i),
+                "Father", "Fatherlastname", "Mother", "Motherlastname", LocalDate.of(1990, 1, 1), GenderType.FEMALE, Role.TEACHER);
+        PersonalInfoInsertDTO personalInfo = new PersonalInfoInsertDTO(String.format("8%010d", i), String.format("PAT%06d", i),
+                "Athens", "Athens");
+        return teacherService.saveTeacher(new TeacherInsertDTO(true, user, personalInfo), null).uuid();
+    }
+}
@@ -0,0 +1,50 @@
+package gr.aueb.cf.eduapp.service;
+
+import gr.aueb.cf.eduapp.repository.PersonalInfoRepository;
+import gr.aueb.cf.eduapp.repository.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * The startup build runs in the background, and until it completes every value might be taken.
+ */
+class TeacherKeyFiltersTest {
+
+    private final UserRepository userRepository = mock(UserRepository.class);
+    private final PersonalInfoRepository personalInfoRepository = mock(PersonalInfoRepository.class);
+
+    @Test
+    void everyValueMightBeTakenUntilTheBackgroundBuildCompletes() throws Exception {
+        CountDownLatch scanning = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(userRepository.streamUniqueKeys()).thenAnswer(invocation -> {
+            scanning.countDown();
+            assertTrue(release.await(5, TimeUnit.SECONDS));
+            return Stream.<Object[]>of(new Object[] { "teacher@aueb.gr", "100000001" });
+        });
+        when(personalInfoRepository.streamUniqueKeys()).thenAnswer(invocation -> Stream.empty());
+        TeacherKeyFilters filters = new TeacherKeyFilters(userRepository, personalInfoRepository,
+                mock(PlatformTransactionManager.class), new SimpleMeterRegistry(), true, 1000);
+
+        filters.rebuildInBackground();          // returns while the table is being scanned
+        assertTrue(scanning.await(5, TimeUnit.SECONDS));
+        assertTrue(filters.mightBeTaken("999999999", null, "new@aueb.gr", null));
+
+        release.countDown();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (filters.mightBeTaken("999999999", null, "new@aueb.gr", null)) {
+            assertTrue(System.nanoTime() < deadline, "The filters were not built");
+            Thread.sleep(5);
+        }
+        assertTrue(filters.mightBeTaken(null, null, "teacher@aueb.gr", null));
+    }
+}
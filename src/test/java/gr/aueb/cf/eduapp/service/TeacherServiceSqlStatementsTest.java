@@ -0,0 +1,342 @@
+package gr.aueb.cf.eduapp.service;
+
+import gr.aueb.cf.eduapp.core.enums.CountMode;
+import gr.aueb.cf.eduapp.core.enums.GenderType;
+import gr.aueb.cf.eduapp.core.enums.Role;
+import gr.aueb.cf.eduapp.core.events.TeacherKeysSavedEvent;
+import gr.aueb.cf.eduapp.core.exceptions.AppObjectAlreadyExists;
+import gr.aueb.cf.eduapp.core.exceptions.AppObjectInvalidArgumentException;
+import gr.aueb.cf.eduapp.core.exceptions.AppObjectNotAuthorizedException;
+import gr.aueb.cf.eduapp.core.filters.KeysetCursor;
+import gr.aueb.cf.eduapp.core.filters.KeysetCursorSigner;
+import gr.aueb.cf.eduapp.core.filters.Paginated;
+import gr.aueb.cf.eduapp.core.filters.TeacherFilters;
+import gr.aueb.cf.eduapp.core.filters.TotalCountCache;
+import gr.aueb.cf.eduapp.core.jdbc.StatementCountingBeanPostProcessor;
+import gr.aueb.cf.eduapp.dto.PersonalInfoInsertDTO;
+import gr.aueb.cf.eduapp.dto.TeacherImportResultDTO;
+import gr.aueb.cf.eduapp.dto.TeacherInsertDTO;
+import gr.aueb.cf.eduapp.dto.TeacherPatchDTO;
+import gr.aueb.cf.eduapp.dto.TeacherReadOnlyDTO;
+import gr.aueb.cf.eduapp.dto.UserInsertDTO;
+import gr.aueb.cf.eduapp.mapper.Mapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Sort;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.validation.beanvalidation.LocalValidatorFactoryBean;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static gr.aueb.cf.eduapp.core.jdbc.SqlStatements.assertStatements;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DataJpaTest
+@ActiveProfiles("test")
+// Fresh pooled id generators for every test, so that no block of ids is fetched in the middle of a counted call
+@DirtiesContext(classMode = DirtiesContext.ClassMode.BEFORE_EACH_TEST_METHOD)
+@Import({TeacherService.class, TeacherImportService.class, Mapper.class, TotalCountCache.class, TeacherSearchIndex.class, TeacherCache.class,
+        TeacherKeyFilters.class, KeysetCursorSigner.class, StatementCountingBeanPostProcessor.class, TeacherServiceSqlStatementsTest.Beans.class})
+class TeacherServiceSqlStatementsTest {
+
+    private static final int TEACHERS = 12;
+
+    @TestConfiguration
+    static class Beans {
+
+        @Bean
+        PasswordEncoder passwordEncoder() {
+            return new BCryptPasswordEncoder(4);
+        }
+
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+
+        @Bean
+        LocalValidatorFactoryBean validator() {
+            return new LocalValidatorFactoryBean();
+        }
+    }
+
+    @Autowired
+    private TeacherService teacherService;
+
+    @Autowired
+    private TeacherImportService teacherImportService;
+
+    @Autowired
+    private TeacherKeyFilters teacherKeyFilters;
+
+    @Autowired
+    private TeacherSearchIndex teacherSearchIndex;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        for (int i = 0; i < TEACHERS; i++) {
+            teacherService.saveTeacher(teacher(i), null);
+        }
+    }
+
+    @Test
+    void saveTeacherChecksUniquenessAndInsertsUserPersonalInfoAndTeacher() throws Exception {
+        // 1 uniqueness query for vat, amka, username and identity number + 3 inserts
+        assertStatements(4, () -> teacherService.saveTeacher(teacher(TEACHERS), null));
+    }
+
+    @Test
+    void paginatedTeachersRunPageAndCountOnly() throws Exception {
+        Paginated<TeacherReadOnlyDTO> page = assertStatements(2,
+                () -> teacherService.getPaginatedTeachers(0, 5, null, CountMode.EXACT));
+        assertEquals(5, page.getData().size());
+        assertEquals(TEACHERS, page.getTotalElements().longValue());
+
+        assertStatements(1, () -> teacherService.getPaginatedTeachers(1, 5, null, CountMode.NONE));
+    }
+
+    @Test
+    void countModeNoneReturnsNoTotals() throws Exception {
+        Paginated<TeacherReadOnlyDTO> page = assertStatements(1,
+                () -> teacherService.getPaginatedTeachers(0, 5, null, CountMode.NONE));
+
+        assertEquals(5, page.getData().size());
+        assertTrue(page.isHasNext());
+        assertNull(page.getTotalElements());
+        assertNull(page.getTotalPages());
+    }
+
+    @Test
+    void countModeEstimatedCountsOncePerTtl() throws Exception {
+        Paginated<TeacherReadOnlyDTO> first = assertStatements(2,
+                () -> teacherService.getPaginatedTeachers(0, 5, null, CountMode.ESTIMATED));
+        assertEquals(TEACHERS, first.getTotalElements().longValue());
+        assertEquals(3, first.getTotalPages().intValue());
+
+        // Later pages reuse the cached total
+        Paginated<TeacherReadOnlyDTO> second = assertStatements(1,
+                () -> teacherService.getPaginatedTeachers(1, 5, null, CountMode.ESTIMATED));
+        assertEquals(TEACHERS, second.getTotalElements().longValue());
+    }
+
+    @Test
+    void countModeEstimatedNeverContradictsThePageAndIsCorrectedByTheLastPage() throws Exception {
+        teacherService.getPaginatedTeachers(0, 5, null, CountMode.ESTIMATED);
+        for (int i = TEACHERS; i < TEACHERS + 4; i++) {
+            teacherService.saveTeacher(teacher(i), null);
+        }
+
+        // The cached total (12) is stale, but page 2 has a next page, so there are at least 16
+        Paginated<TeacherReadOnlyDTO> stale = assertStatements(1,
+                () -> teacherService.getPaginatedTeachers(2, 5, null, CountMode.ESTIMATED));
+        assertTrue(stale.isHasNext());
+        assertEquals(TEACHERS + 4, stale.getTotalElements().longValue());
+
+        // The last page tells the exact total and refreshes the cached one
+        Paginated<TeacherReadOnlyDTO> last = assertStatements(1,
+                () -> teacherService.getPaginatedTeachers(3, 5, null, CountMode.ESTIMATED));
+        assertFalse(last.isHasNext());
+        assertEquals(TEACHERS + 4, last.getTotalElements().longValue());
+        Paginated<TeacherReadOnlyDTO> first = assertStatements(1,
+                () -> teacherService.getPaginatedTeachers(0, 5, null, CountMode.ESTIMATED));
+        assertEquals(TEACHERS + 4, first.getTotalElements().longValue());
+    }
+
+    @Test
+    void exportStreamsTheMatchingTeachersFromOneQuery() throws Exception {
+        List<TeacherReadOnlyDTO> exported = new ArrayList<>();
+        long count = assertStatements(1, () -> teacherService.exportTeachers(TeacherFilters.builder().build(), exported::add));
+
+        assertEquals(TEACHERS, count);
+        assertEquals(TEACHERS, exported.size());
+    }
+
+    @Test
+    void pagesAreOnlySortedOnTheSortableAttributes() {
+        for (String sortBy : List.of("user.password", "user.username", "personalInfo.amkaFile.filePath")) {
+            TeacherFilters filters = TeacherFilters.builder().build();
+            filters.setSortBy(sortBy);
+            assertEquals("SortByInvalidArgument", assertThrows(AppObjectInvalidArgumentException.class,
+                    () -> teacherService.getTeachersFilteredPaginated(filters)).getCode());
+            filters.setCursor("");
+            assertEquals("SortByInvalidArgument", assertThrows(AppObjectInvalidArgumentException.class,
+                    () -> teacherService.getTeachersFilteredPaginated(filters)).getCode());
+            assertEquals("SortByInvalidArgument", assertThrows(AppObjectInvalidArgumentException.class,
+                    () -> teacherService.exportTeachers(filters, teacher -> {})).getCode());
+        }
+    }
+
+    @Test
+    void keysetPagesOnlyAcceptTheCursorsTheyIssued() throws Exception {
+        TeacherFilters filters = TeacherFilters.builder().build();
+        filters.setSortBy("user.lastname");
+        filters.setPageSize(5);
+        filters.setCursor("");
+        Paginated<TeacherReadOnlyDTO> first = teacherService.getTeachersFilteredPaginated(filters);
+
+        filters.setCursor(first.getNextCursor());
+        Paginated<TeacherReadOnlyDTO> second = teacherService.getTeachersFilteredPaginated(filters);
+        assertEquals(5, second.getData().size());
+
+        // Same payload, forged last value or no signature at all
+        String cursor = first.getNextCursor().substring(0, first.getNextCursor().lastIndexOf('.'));
+        String forged = new KeysetCursor("user.lastname", Sort.Direction.ASC, 1L, "Lastname0").encode();
+        for (String token : List.of(cursor, forged, forged + first.getNextCursor().substring(cursor.length()))) {
+            filters.setCursor(token);
+            assertEquals("CursorInvalidArgument", assertThrows(AppObjectInvalidArgumentException.class,
+                    () -> teacherService.getTeachersFilteredPaginated(filters)).getCode());
+        }
+    }
+
+    @Test
+    void saveTeacherSkipsTheUniquenessQueryForValuesTheFiltersRuleOut() throws Exception {
+        teacherKeyFilters.rebuild();
+
+        assertStatements(3, () -> teacherService.saveTeacher(teacher(TEACHERS), null));
+        assertEquals("VATAlreadyExists", assertThrows(AppObjectAlreadyExists.class,
+                () -> teacherService.saveTeacher(teacher(3), null)).getCode());
+    }
+
+    @Test
+    void filtersMatchValuesThatDifferOnlyInCase() {
+        teacherKeyFilters.rebuild();
+        assertTrue(teacherKeyFilters.mightBeTaken(null, null, "Teacher3@AUEB.gr", null));
+        assertTrue(teacherKeyFilters.mightBeTaken(null, null, " teacher3@aueb.gr ", null));
+        assertTrue(teacherKeyFilters.mightBeTaken(null, null, null, "id000003"));
+
+        teacherKeyFilters.onTeacherKeysSaved(new TeacherKeysSavedEvent("999999999", "29999999999", "New.Teacher@aueb.gr", "AB123456"));
+        assertTrue(teacherKeyFilters.mightBeTaken(null, null, "new.teacher@AUEB.GR", null));
+        assertTrue(teacherKeyFilters.mightBeTaken(null, null, null, "ab123456"));
+
+        teacherKeyFilters.onTeacherKeysSaved(new TeacherKeysSavedEvent(null, null, "josé@aueb.gr", null));
+        assertTrue(teacherKeyFilters.mightBeTaken(null, null, "JOSE@aueb.gr", null));
+    }
+
+    @Test
+    void patchLoadsTheAggregateOnceAndUpdatesOnlyTheChangedRows() throws Exception {
+        TeacherReadOnlyDTO teacher = teacherService.saveTeacher(teacher(TEACHERS), null);
+        entityManager.flush();
+        entityManager.clear();
+
+        // 1 select of teacher, user and personal info + update of teachers (is_active) and users (is_active, token epoch)
+        TeacherReadOnlyDTO patched = assertStatements(3, () -> teacherService.patchTeacher(teacher.uuid(),
+                TeacherPatchDTO.builder().isActive(false).build(), teacher.version(), "teacher12@aueb.gr", false));
+        assertEquals(false, patched.isActive());
+        assertEquals(teacher.version() + 1, patched.version());
+
+        // Nothing changes, nothing is written
+        entityManager.clear();
+        assertStatements(1, () -> teacherService.patchTeacher(teacher.uuid(),
+                TeacherPatchDTO.builder().isActive(false).build(), null, "admin@aueb.gr", true));
+    }
+
+    @Test
+    void patchRejectsAnotherTeacherBeforeAnyWrite() throws Exception {
+        TeacherReadOnlyDTO teacher = teacherService.saveTeacher(teacher(TEACHERS), null);
+        entityManager.flush();
+        entityManager.clear();
+
+        AppObjectNotAuthorizedException e = assertStatements(1, () -> assertThrows(AppObjectNotAuthorizedException.class,
+                () -> teacherService.patchTeacher(teacher.uuid(), TeacherPatchDTO.builder().isActive(false).build(),
+                        null, "teacher3@aueb.gr", false)));
+        assertEquals("TeacherNotAuthorized", e.getCode());
+    }
+
+    @Test
+    void saveTeacherReportsTheFirstTakenKey() {
+        TeacherInsertDTO duplicate = teacher(3);
+        TeacherInsertDTO sameAmka = new TeacherInsertDTO(true, teacher(TEACHERS).userInsertDTO(), duplicate.personalInfoInsertDTO());
+
+        assertEquals("VATAlreadyExists", assertThrows(AppObjectAlreadyExists.class, () -> teacherService.saveTeacher(duplicate, null)).getCode());
+        assertEquals("AMKAAlreadyExists", assertThrows(AppObjectAlreadyExists.class, () -> teacherService.saveTeacher(sameAmka, null)).getCode());
+    }
+
+    @Test
+    void saveTeacherRejectsAMissingRoleBeforeAnyQuery() throws Exception {
+        UserInsertDTO user = teacher(TEACHERS).userInsertDTO();
+        UserInsertDTO noRole = new UserInsertDTO(user.firstname(), user.lastname(), user.username(), user.password(),
+                user.vat(), user.fatherName(), user.fatherLastname(), user.motherName(), user.motherLastname(),
+                user.dateOfBirth(), user.gender(), null);
+        TeacherInsertDTO teacher = new TeacherInsertDTO(true, noRole, teacher(TEACHERS).personalInfoInsertDTO());
+
+        AppObjectInvalidArgumentException e = assertStatements(0,
+                () -> assertThrows(AppObjectInvalidArgumentException.class, () -> teacherService.saveTeacher(teacher, null)));
+        assertEquals("RoleInvalidArgument", e.getCode());
+    }
+
+    @Test
+    void searchIndexPicksUpRowsWrittenElsewhereOnTheNextRebuild() {
+        teacherSearchIndex.rebuild();
+        // Written without going through this node's service, as another node or a DB client would
+        entityManager.getEntityManager()
+                .createQuery("update User u set u.firstname = 'Zacharoula' where u.username = 'teacher3@aueb.gr'")
+                .executeUpdate();
+        assertEquals(List.of(), teacherSearchIndex.candidates("zacharoula").orElseThrow());
+
+        teacherSearchIndex.rebuild();
+        assertEquals(1, teacherSearchIndex.candidates("zacharoula").orElseThrow().size());
+    }
+
+    @Test
+    void saveTeacherRejectsSelfRegistrationAsSuperAdmin() throws Exception {
+        UserInsertDTO user = teacher(TEACHERS).userInsertDTO();
+        UserInsertDTO superAdmin = new UserInsertDTO(user.firstname(), user.lastname(), user.username(), user.password(),
+                user.vat(), user.fatherName(), user.fatherLastname(), user.motherName(), user.motherLastname(),
+                user.dateOfBirth(), user.gender(), Role.SUPER_ADMIN);
+        TeacherInsertDTO teacher = new TeacherInsertDTO(true, superAdmin, teacher(TEACHERS).personalInfoInsertDTO());
+
+        AppObjectInvalidArgumentException e = assertStatements(0,
+                () -> assertThrows(AppObjectInvalidArgumentException.class, () -> teacherService.saveTeacher(teacher, null)));
+        assertEquals("RoleInvalidArgument", e.getCode());
+    }
+
+    @Test
+    void importChunkChecksUniquenessOnceAndBatchesTheInserts() {
+        TeacherInsertDTO sameVat = new TeacherInsertDTO(true, teacher(TEACHERS).userInsertDTO(),
+                teacher(TEACHERS + 2).personalInfoInsertDTO());
+        List<TeacherImportReader.Row> rows = List.of(
+                new TeacherImportReader.Row(2, teacher(TEACHERS), null),
+                new TeacherImportReader.Row(3, teacher(TEACHERS + 1), null),
+                new TeacherImportReader.Row(4, sameVat, null),
+                new TeacherImportReader.Row(5, teacher(3), null),
+                new TeacherImportReader.Row(6, null, "Expected 17 columns, found 3"));
+
+        // 1 uniqueness query for the whole chunk + 1 batch of inserts per table, whatever the number of rows
+        List<TeacherImportResultDTO> results = assertStatements(4, () -> teacherImportService.importChunk(rows));
+
+        assertEquals(List.of("CREATED", "CREATED", "FAILED", "FAILED", "FAILED"),
+                results.stream().map(TeacherImportResultDTO::status).toList());
+        assertEquals("VATAlreadyExists", results.get(2).code());
+        assertEquals("VATAlreadyExists", results.get(3).code());
+        assertEquals("InvalidRow", results.get(4).code());
+    }
+
+    private static TeacherInsertDTO teacher(int i) {
+        UserInsertDTO user = new UserInsertDTO("Firstname" + i, "Lastname" + i, "teacher" + i + "@aueb.gr",
+                "Passw0rd!", String.format("1%08d", i), "Father", "Fatherlastname", "Mother", "Motherlastname",
+                LocalDate.of(1990, 1, 1), GenderType.FEMALE, Role.TEACHER);
+        PersonalInfoInsertDTO personalInfo = new PersonalInfoInsertDTO(String.format("2%010d", i),
+                String.format("ID%06d", i), "Athens", "Athens");
+        return new TeacherInsertDTO(true, user, personalInfo);
+    }
+}